@@ -0,0 +1,78 @@
+package com.distributed.jobqueue.loadtest;
+
+import com.distributed.jobqueue.DistributedJobQueueApplication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * N full app instances (API server + scheduled worker each) running in this JVM,
+ * all sharing one database, exactly like N deployed replicas sharing Postgres.
+ */
+public class AppCluster implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(AppCluster.class);
+
+    private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+    private final List<String> baseUrls = new ArrayList<>();
+
+    public static AppCluster start(LoadTestConfig config) throws Exception {
+        AppCluster cluster = new AppCluster();
+        Path resultsDir = Files.createTempDirectory("jobqueue-loadtest-results");
+
+        // started one by one so only the first instance races nobody on ddl-auto
+        for (int i = 0; i < config.getInstances(); i++) {
+            Map<String, Object> props = new HashMap<>();
+            props.put("server.port", 0);
+            props.put("spring.datasource.url", config.getJdbcUrl());
+            props.put("spring.datasource.username", config.getDbUser());
+            props.put("spring.datasource.password", config.getDbPassword());
+            props.put("spring.jpa.hibernate.ddl-auto", "update");
+            props.put("spring.jpa.show-sql", false);
+            props.put("spring.jpa.open-in-view", false);
+            // shared, like a network mount in a real deployment
+            props.put("jobqueue.results.file-store-dir", resultsDir.toString());
+            props.put("logging.level.root", "WARN");
+            props.put("logging.level.com.distributed.jobqueue.loadtest", "INFO");
+
+            ConfigurableApplicationContext ctx = new SpringApplicationBuilder(DistributedJobQueueApplication.class)
+                    .properties(props)
+                    .run();
+            String port = ctx.getEnvironment().getProperty("local.server.port");
+            cluster.contexts.add(ctx);
+            cluster.baseUrls.add("http://localhost:" + port);
+            log.info("Instance {} started on port {}", i, port);
+        }
+        return cluster;
+    }
+
+    public List<String> baseUrls() {
+        return baseUrls;
+    }
+
+    /**
+     * Any instance works for reading shared state back out of the database.
+     */
+    public ConfigurableApplicationContext anyContext() {
+        return contexts.get(0);
+    }
+
+    public List<ConfigurableApplicationContext> contexts() {
+        return contexts;
+    }
+
+    @Override
+    public void close() {
+        for (ConfigurableApplicationContext ctx : contexts) {
+            ctx.close();
+        }
+    }
+}
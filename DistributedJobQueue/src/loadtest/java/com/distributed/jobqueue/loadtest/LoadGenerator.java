@@ -0,0 +1,160 @@
+package com.distributed.jobqueue.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Open-loop submitter: fires POST /api/jobs at a fixed aggregate rate regardless of
+ * how fast the cluster answers, round-robin across instances.
+ *
+ * Tenant mix:
+ * - abusiveShare of submissions come from a handful of abusive tenants
+ * - the rest are spread uniformly across the well-behaved tenants
+ * - failingPayloadRatio of payloads contain "failMe" and end up in the DLQ
+ */
+public class LoadGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadGenerator.class);
+
+    private static final long TICK_MILLIS = 10;
+
+    private final LoadTestConfig config;
+    private final List<String> baseUrls;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    // accepted job id -> wall-clock submit time
+    private final Map<Long, Instant> submittedAt = new ConcurrentHashMap<>();
+
+    private final AtomicLong attempted = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final String padding;
+
+    public LoadGenerator(LoadTestConfig config, List<String> baseUrls) {
+        this.config = config;
+        this.baseUrls = baseUrls;
+        this.padding = "x".repeat(Math.max(0, config.getPayloadPaddingBytes()));
+    }
+
+    /**
+     * Submits for the configured duration, then returns.
+     * In-flight requests may still complete shortly after.
+     */
+    public void run() throws InterruptedException {
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+        double perTick = config.getSubmitsPerSecond() * TICK_MILLIS / 1000.0;
+        double[] credit = {0};
+
+        ticker.scheduleAtFixedRate(() -> {
+            credit[0] += perTick;
+            while (credit[0] >= 1) {
+                credit[0] -= 1;
+                submitOne();
+            }
+        }, 0, TICK_MILLIS, TimeUnit.MILLISECONDS);
+
+        Thread.sleep(config.getDurationSeconds() * 1000L);
+        ticker.shutdownNow();
+        ticker.awaitTermination(5, TimeUnit.SECONDS);
+        log.info("Submit phase done: attempted={}, accepted={}, rateLimited={}, errors={}",
+                attempted.get(), submittedAt.size(), rateLimited.get(), errors.get());
+    }
+
+    private void submitOne() {
+        long seq = sequence.incrementAndGet();
+        String baseUrl = baseUrls.get((int) (seq % baseUrls.size()));
+        String tenant = pickTenant();
+
+        ObjectNode payload = objectMapper.createObjectNode();
+        payload.put("task", "loadtest");
+        payload.put("seq", seq);
+        if (ThreadLocalRandom.current().nextDouble() < config.getFailingPayloadRatio()) {
+            payload.put("mode", "failMe");
+        }
+        if (!padding.isEmpty()) {
+            payload.put("padding", padding);
+        }
+
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("payload", payload.toString());
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/jobs"))
+                .header("Content-Type", "application/json")
+                .header("X-Tenant-Id", tenant)
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+
+        Instant sentAt = Instant.now();
+        attempted.incrementAndGet();
+        http.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        errors.incrementAndGet();
+                    } else if (response.statusCode() == 429) {
+                        rateLimited.incrementAndGet();
+                    } else if (response.statusCode() != 200) {
+                        errors.incrementAndGet();
+                    } else {
+                        recordAccepted(response.body(), sentAt);
+                    }
+                });
+    }
+
+    private void recordAccepted(String responseBody, Instant sentAt) {
+        try {
+            JsonNode job = objectMapper.readTree(responseBody);
+            // idempotent replays would return an existing job; keep the first submit time
+            submittedAt.putIfAbsent(job.get("id").asLong(), sentAt);
+        } catch (Exception e) {
+            errors.incrementAndGet();
+        }
+    }
+
+    private String pickTenant() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (config.getAbusiveTenants() > 0 && random.nextDouble() < config.getAbusiveShare()) {
+            return "abusive-" + random.nextInt(config.getAbusiveTenants());
+        }
+        return "tenant-" + random.nextInt(Math.max(1, config.getTenants()));
+    }
+
+    public Map<Long, Instant> submittedAt() {
+        return submittedAt;
+    }
+
+    public long attempted() {
+        return attempted.get();
+    }
+
+    public long rateLimited() {
+        return rateLimited.get();
+    }
+
+    public long errors() {
+        return errors.get();
+    }
+}
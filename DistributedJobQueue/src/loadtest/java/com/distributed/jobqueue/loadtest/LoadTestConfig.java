@@ -0,0 +1,104 @@
+package com.distributed.jobqueue.loadtest;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Load test settings, read from -Dloadtest.* system properties.
+ *
+ * Example (2 instances, embedded DB, 5 minute soak):
+ * ./gradlew loadTest -Dloadtest.instances=2 -Dloadtest.durationSeconds=300
+ *
+ * Against the docker-compose Postgres:
+ * ./gradlew loadTest -Dloadtest.db=postgres -Dloadtest.jdbcUrl=jdbc:postgresql://localhost:5432/jobqueue_db
+ */
+@Data
+@Builder
+public class LoadTestConfig {
+
+    /**
+     * Number of in-process app instances (each one is an API server + worker).
+     */
+    private int instances;
+
+    /**
+     * How long submissions are generated for.
+     */
+    private int durationSeconds;
+
+    /**
+     * How long to wait after the submit phase for accepted jobs to finish.
+     */
+    private int drainSeconds;
+
+    /**
+     * Aggregate submit rate across all tenants.
+     */
+    private double submitsPerSecond;
+
+    /**
+     * Number of well-behaved tenants.
+     */
+    private int tenants;
+
+    /**
+     * Number of abusive tenants (subject to the same per-tenant limits).
+     */
+    private int abusiveTenants;
+
+    /**
+     * Share of all submissions that come from abusive tenants (0..1).
+     */
+    private double abusiveShare;
+
+    /**
+     * Share of submissions whose payload instructs the worker to fail (0..1).
+     */
+    private double failingPayloadRatio;
+
+    /**
+     * Extra padding added to each payload, to model larger jobs.
+     */
+    private int payloadPaddingBytes;
+
+    /**
+     * "h2" (embedded, in-memory) or "postgres".
+     */
+    private String db;
+
+    private String jdbcUrl;
+    private String dbUser;
+    private String dbPassword;
+
+    /**
+     * Optional file the final report is also written to.
+     */
+    private String reportFile;
+
+    public static LoadTestConfig fromSystemProperties() {
+        String db = prop("db", "h2");
+        boolean postgres = "postgres".equalsIgnoreCase(db);
+        return LoadTestConfig.builder()
+                .instances(Integer.parseInt(prop("instances", "2")))
+                .durationSeconds(Integer.parseInt(prop("durationSeconds", "60")))
+                .drainSeconds(Integer.parseInt(prop("drainSeconds", "120")))
+                .submitsPerSecond(Double.parseDouble(prop("submitsPerSecond", "20")))
+                .tenants(Integer.parseInt(prop("tenants", "200")))
+                .abusiveTenants(Integer.parseInt(prop("abusiveTenants", "3")))
+                .abusiveShare(Double.parseDouble(prop("abusiveShare", "0.3")))
+                .failingPayloadRatio(Double.parseDouble(prop("failingPayloadRatio", "0.05")))
+                .payloadPaddingBytes(Integer.parseInt(prop("payloadPaddingBytes", "0")))
+                .db(db)
+                .jdbcUrl(prop("jdbcUrl", postgres
+                        ? "jdbc:postgresql://localhost:5432/jobqueue_db"
+                        : "jdbc:h2:mem:loadtest;DB_CLOSE_DELAY=-1;MODE=PostgreSQL"))
+                .dbUser(prop("dbUser", postgres ? "postgres" : "sa"))
+                .dbPassword(prop("dbPassword", postgres ? "postgres" : ""))
+                .reportFile(prop("reportFile", null))
+                .build();
+    }
+
+    private static String prop(String name, String defaultValue) {
+        return System.getProperty("loadtest." + name, defaultValue);
+    }
+}
@@ -0,0 +1,200 @@
+package com.distributed.jobqueue.loadtest;
+
+import com.distributed.jobqueue.model.Job;
+import com.distributed.jobqueue.model.JobEvent;
+import com.distributed.jobqueue.model.JobStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Turns the submit log plus the jobs/job_events tables into a load test report.
+ *
+ * Definitions:
+ * - submit-to-start: client send time -> first STARTED event
+ * - submit-to-complete: client send time -> COMPLETED event
+ * - expired lease takeovers: LEASE_EXPIRED events (a worker lost a job mid-attempt)
+ * - duplicate executions: a STARTED event while another attempt of the same job is
+ *   still open, plus any COMPLETED event after the first
+ * - lease contention (from the instances' meters): lease polls that came back short
+ *   while other leasable rows were locked by concurrent workers (SKIP LOCKED), time
+ *   spent in lease transactions, and time spent waiting for a pooled connection
+ */
+public class LoadTestReport {
+
+    // LEASE_EXPIRED closes the lost attempt, so the takeover's STARTED isn't a duplicate
+    private static final Set<String> OUTCOME_EVENTS =
+            Set.of("COMPLETED", "FAILED", "TIMED_OUT", "DLQ", "CANCELLED", "LEASE_EXPIRED");
+
+    // latencies recorded in microseconds, up to one hour
+    // auto-resizing, so a job stuck for hours is recorded instead of overflowing the range
+    private final Histogram submitToStart = new Histogram(3);
+    private final Histogram submitToComplete = new Histogram(3);
+
+    private final Map<JobStatus, Long> statusCounts = new EnumMap<>(JobStatus.class);
+    private long leaseTakeovers;
+    private final Map<String, Long> leasePolls = new TreeMap<>();
+    private long leaseTxCount;
+    private double leaseTxTotalMs;
+    private double leaseTxMaxMs;
+    private long acquireCount;
+    private double acquireTotalMs;
+    private double acquireMaxMs;
+    private long duplicateExecutions;
+    private long unfinished;
+    private Instant firstSubmit;
+    private Instant lastCompletion;
+    private long completed;
+
+    public static LoadTestReport build(Map<Long, Instant> submittedAt, List<Job> jobs, List<JobEvent> events) {
+        LoadTestReport report = new LoadTestReport();
+
+        // tenant-level events (e.g. TENANT_MOVED) have no job id
+        Map<Long, List<JobEvent>> eventsByJob = events.stream()
+                .filter(e -> e.getJobId() != null && submittedAt.containsKey(e.getJobId()))
+                .collect(Collectors.groupingBy(JobEvent::getJobId));
+
+        for (Job job : jobs) {
+            Instant submitted = submittedAt.get(job.getId());
+            if (submitted == null) {
+                continue;
+            }
+            report.statusCounts.merge(job.getStatus(), 1L, Long::sum);
+            if (job.getStatus() == JobStatus.PENDING || job.getStatus() == JobStatus.RUNNING) {
+                report.unfinished++;
+            }
+            if (report.firstSubmit == null || submitted.isBefore(report.firstSubmit)) {
+                report.firstSubmit = submitted;
+            }
+            report.analyzeJob(submitted, eventsByJob.getOrDefault(job.getId(), List.of()));
+        }
+        return report;
+    }
+
+    private void analyzeJob(Instant submitted, List<JobEvent> jobEvents) {
+        List<JobEvent> ordered = jobEvents.stream()
+                .sorted(Comparator.comparing(JobEvent::getTimestamp).thenComparing(JobEvent::getId))
+                .toList();
+
+        boolean attemptOpen = false;
+        boolean started = false;
+        boolean completedSeen = false;
+
+        for (JobEvent e : ordered) {
+            switch (e.getEventType()) {
+                case "LEASE_EXPIRED" -> leaseTakeovers++;
+                case "STARTED" -> {
+                    if (attemptOpen) {
+                        duplicateExecutions++;
+                    }
+                    attemptOpen = true;
+                    if (!started) {
+                        started = true;
+                        submitToStart.recordValue(micros(submitted, e.getTimestamp()));
+                    }
+                }
+                case "COMPLETED" -> {
+                    if (completedSeen) {
+                        duplicateExecutions++;
+                    } else {
+                        completedSeen = true;
+                        completed++;
+                        submitToComplete.recordValue(micros(submitted, e.getTimestamp()));
+                        if (lastCompletion == null || e.getTimestamp().isAfter(lastCompletion)) {
+                            lastCompletion = e.getTimestamp();
+                        }
+                    }
+                }
+                default -> { }
+            }
+            if (OUTCOME_EVENTS.contains(e.getEventType())) {
+                attemptOpen = false;
+            }
+        }
+    }
+
+    /**
+     * Sums the worker lease meters and Hikari acquire timers of all instances.
+     */
+    public void addWorkerMetrics(List<MeterRegistry> registries) {
+        for (MeterRegistry registry : registries) {
+            for (Counter c : registry.find("jobqueue.worker.lease.polls").counters()) {
+                leasePolls.merge(c.getId().getTag("result"), (long) c.count(), Long::sum);
+            }
+            for (Timer t : registry.find("jobqueue.worker.lease").timers()) {
+                leaseTxCount += t.count();
+                leaseTxTotalMs += t.totalTime(TimeUnit.MILLISECONDS);
+                leaseTxMaxMs = Math.max(leaseTxMaxMs, t.max(TimeUnit.MILLISECONDS));
+            }
+            for (Timer t : registry.find("hikaricp.connections.acquire").timers()) {
+                acquireCount += t.count();
+                acquireTotalMs += t.totalTime(TimeUnit.MILLISECONDS);
+                acquireMaxMs = Math.max(acquireMaxMs, t.max(TimeUnit.MILLISECONDS));
+            }
+        }
+    }
+
+    private static long micros(Instant from, Instant to) {
+        return Math.max(0, Duration.between(from, to).toNanos() / 1000);
+    }
+
+    public String render(LoadTestConfig config, LoadGenerator generator) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("==== Load test report ====\n");
+        sb.append(String.format("instances=%d db=%s duration=%ds rate=%.1f/s tenants=%d abusive=%d (share %.0f%%) failing=%.0f%%%n",
+                config.getInstances(), config.getDb(), config.getDurationSeconds(), config.getSubmitsPerSecond(),
+                config.getTenants(), config.getAbusiveTenants(), config.getAbusiveShare() * 100,
+                config.getFailingPayloadRatio() * 100));
+        sb.append(String.format("submissions: attempted=%d accepted=%d rateLimited=%d errors=%d%n",
+                generator.attempted(), generator.submittedAt().size(), generator.rateLimited(), generator.errors()));
+        sb.append("final status: ").append(statusCounts).append(" (unfinished=").append(unfinished).append(")\n");
+
+        double seconds = firstSubmit != null && lastCompletion != null
+                ? Math.max(1, Duration.between(firstSubmit, lastCompletion).toMillis()) / 1000.0
+                : 0;
+        sb.append(String.format("throughput: %d completed, %.2f jobs/s%n", completed, seconds > 0 ? completed / seconds : 0));
+
+        appendHistogram(sb, "submit-to-start   ", submitToStart);
+        appendHistogram(sb, "submit-to-complete", submitToComplete);
+
+        sb.append("lease polls: ").append(leasePolls)
+                .append(" (contended = short batch while other workers held leasable rows)\n");
+        sb.append(String.format("lease transaction ms: n=%d mean=%.1f max=%.1f%n",
+                leaseTxCount, leaseTxCount > 0 ? leaseTxTotalMs / leaseTxCount : 0.0, leaseTxMaxMs));
+        sb.append(String.format("connection acquire ms: n=%d mean=%.2f max=%.1f%n",
+                acquireCount, acquireCount > 0 ? acquireTotalMs / acquireCount : 0.0, acquireMaxMs));
+        sb.append("expired lease takeovers: ").append(leaseTakeovers).append('\n');
+        sb.append("duplicate executions: ").append(duplicateExecutions).append('\n');
+        return sb.toString();
+    }
+
+    private static void appendHistogram(StringBuilder sb, String name, Histogram h) {
+        if (h.getTotalCount() == 0) {
+            sb.append(name).append(": no samples\n");
+            return;
+        }
+        sb.append(String.format("%s ms: n=%d p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f%n",
+                name, h.getTotalCount(),
+                h.getValueAtPercentile(50) / 1000.0,
+                h.getValueAtPercentile(90) / 1000.0,
+                h.getValueAtPercentile(99) / 1000.0,
+                h.getValueAtPercentile(99.9) / 1000.0,
+                h.getMaxValue() / 1000.0));
+    }
+
+    public long duplicateExecutions() {
+        return duplicateExecutions;
+    }
+}
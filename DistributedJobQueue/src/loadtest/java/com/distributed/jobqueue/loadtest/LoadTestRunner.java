@@ -0,0 +1,88 @@
+package com.distributed.jobqueue.loadtest;
+
+import com.distributed.jobqueue.model.Job;
+import com.distributed.jobqueue.model.JobStatus;
+import com.distributed.jobqueue.repository.JobEventRepository;
+import com.distributed.jobqueue.repository.JobRepository;
+import com.distributed.jobqueue.service.ShardRouter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entry point of the load test / soak harness (./gradlew loadTest).
+ *
+ * 1. Boots the configured number of app instances against one database
+ * 2. Drives open-loop multi-tenant submissions for the configured duration
+ * 3. Waits for accepted jobs to reach a terminal state (bounded by drainSeconds)
+ * 4. Reports throughput, latency percentiles, lease contention and duplicate executions
+ *    (contention comes from every instance's worker and connection pool meters)
+ *
+ * Exits non-zero if any duplicate execution was observed.
+ */
+public class LoadTestRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestRunner.class);
+
+    private static final long DRAIN_POLL_MILLIS = 2000;
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+        log.info("Starting load test: {}", config);
+
+        String rendered;
+        LoadTestReport report;
+        try (AppCluster cluster = AppCluster.start(config)) {
+            LoadGenerator generator = new LoadGenerator(config, cluster.baseUrls());
+            generator.run();
+
+            ConfigurableApplicationContext ctx = cluster.anyContext();
+            JobRepository jobRepository = ctx.getBean(JobRepository.class);
+            JobEventRepository jobEventRepository = ctx.getBean(JobEventRepository.class);
+            ShardRouter shardRouter = ctx.getBean(ShardRouter.class);
+
+            List<Job> jobs = drain(shardRouter, jobRepository, generator.submittedAt(), config.getDrainSeconds());
+            report = LoadTestReport.build(generator.submittedAt(), jobs,
+                    shardRouter.collectAcrossShards(jobEventRepository::findAll));
+            report.addWorkerMetrics(cluster.contexts().stream()
+                    .map(c -> c.getBean(MeterRegistry.class))
+                    .toList());
+            rendered = report.render(config, generator);
+        }
+
+        System.out.println(rendered);
+        if (config.getReportFile() != null) {
+            Files.writeString(Path.of(config.getReportFile()), rendered);
+        }
+        System.exit(report.duplicateExecutions() > 0 ? 1 : 0);
+    }
+
+    /**
+     * Polls until every accepted job is terminal or the drain deadline passes.
+     */
+    private static List<Job> drain(ShardRouter shardRouter, JobRepository jobRepository,
+                                   Map<Long, Instant> submitted, int drainSeconds) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + drainSeconds * 1000L;
+        while (true) {
+            List<Job> jobs = shardRouter.collectAcrossShards(() -> jobRepository.findAllById(submitted.keySet()));
+            long open = jobs.stream()
+                    .filter(j -> j.getStatus() == JobStatus.PENDING || j.getStatus() == JobStatus.RUNNING)
+                    .count();
+            if (open == 0 || System.currentTimeMillis() >= deadline) {
+                if (open > 0) {
+                    log.warn("Drain deadline reached with {} unfinished jobs", open);
+                }
+                return jobs;
+            }
+            log.info("Draining: {} of {} jobs still pending/running", open, jobs.size());
+            Thread.sleep(DRAIN_POLL_MILLIS);
+        }
+    }
+}
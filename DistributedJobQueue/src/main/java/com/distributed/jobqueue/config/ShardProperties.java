@@ -0,0 +1,51 @@
+package com.distributed.jobqueue.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tenant sharding settings, bound from `jobqueue.sharding.*`.
+ *
+ * The first shard is the directory shard: it is the primary datasource's schema,
+ * gets its tables from Hibernate ddl-auto and holds the tenant override table.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "jobqueue.sharding")
+public class ShardProperties {
+
+    private boolean enabled = false;
+
+    /**
+     * Points per shard on the consistent-hash ring.
+     */
+    private int virtualNodes = 128;
+
+    /**
+     * How often each instance reloads tenant overrides written by other instances.
+     */
+    private long overrideRefreshMs = 10_000;
+
+    private List<Shard> shards = new ArrayList<>();
+
+    @Data
+    public static class Shard {
+        private String name;
+
+        /**
+         * Postgres schema holding this shard's tables.
+         */
+        private String schema;
+
+        /**
+         * Optional separate database; defaults to the primary datasource url/credentials.
+         */
+        private String url;
+        private String username;
+        private String password;
+    }
+}
@@ -0,0 +1,89 @@
+package com.distributed.jobqueue.config;
+
+import com.distributed.jobqueue.shard.ShardDataSources;
+import com.distributed.jobqueue.shard.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Replaces the single pooled datasource with a routing datasource over one
+ * Hikari pool per shard when `jobqueue.sharding.enabled=true`.
+ *
+ * Every shard pool gets the same `spring.datasource.hikari.*` tunables and
+ * reports the usual hikaricp.* metrics, tagged with pool name "shard-<name>".
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "jobqueue.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean
+    public ShardDataSources shardDataSources(
+            ShardProperties shardProperties,
+            DataSourceProperties dataSourceProperties,
+            Environment environment,
+            MeterRegistry meterRegistry
+    ) {
+        if (shardProperties.getShards().isEmpty()) {
+            throw new IllegalStateException("jobqueue.sharding.enabled=true but no jobqueue.sharding.shards configured");
+        }
+        // shard schemas are cloned from the directory shard's tables
+        if (isBlank(shardProperties.getShards().get(0).getSchema())) {
+            throw new IllegalStateException("jobqueue.sharding.shards[0].schema (the directory shard's schema) must be set");
+        }
+
+        Map<String, DataSource> pools = new LinkedHashMap<>();
+        Map<String, ShardProperties.Shard> definitions = new HashMap<>();
+        for (ShardProperties.Shard shard : shardProperties.getShards()) {
+            // schema shards in the directory's database are provisioned by schema name
+            if (shard.getUrl() == null && isBlank(shard.getSchema())) {
+                throw new IllegalStateException("jobqueue.sharding shard " + shard.getName()
+                        + " needs a schema (or its own url)");
+            }
+            HikariDataSource pool = dataSourceProperties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .build();
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+
+            if (shard.getUrl() != null) {
+                pool.setJdbcUrl(shard.getUrl());
+                pool.setUsername(shard.getUsername());
+                pool.setPassword(shard.getPassword());
+            }
+            pool.setSchema(shard.getSchema());
+            pool.setPoolName("shard-" + shard.getName());
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+
+            pools.put(shard.getName(), pool);
+            definitions.put(shard.getName(), shard);
+        }
+        return new ShardDataSources(pools, definitions);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardDataSources shardDataSources) {
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(new HashMap<>(shardDataSources.asMap()));
+        routing.setDefaultTargetDataSource(shardDataSources.get(shardDataSources.directoryShard()));
+        routing.afterPropertiesSet();
+        return routing;
+    }
+}
@@ -0,0 +1,44 @@
+package com.distributed.jobqueue.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Worker tunables, bound from `jobqueue.worker.*`.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "jobqueue.worker")
+public class WorkerProperties {
+
+    /**
+     * Max jobs leased (and row-locked) per poll.
+     */
+    private int batchSize = 5;
+
+    /**
+     * Execution deadline for jobs with no per-job or per-type timeout.
+     */
+    private Duration defaultTimeout = Duration.ofSeconds(60);
+
+    /**
+     * Execution deadlines keyed by job type, e.g. jobqueue.worker.type-timeouts.sendEmail=10s
+     */
+    private Map<String, Duration> typeTimeouts = new HashMap<>();
+
+    /**
+     * Upper bound for any execution deadline; larger per-job timeouts are rejected at
+     * submission and larger configured ones are clamped. Leases are sized from it.
+     */
+    private Duration maxTimeout = Duration.ofHours(1);
+
+    /**
+     * How often a waiting worker re-checks a running job for a cancel request.
+     */
+    private Duration cancelPollInterval = Duration.ofMillis(500);
+}
@@ -5,8 +5,11 @@ import com.distributed.jobqueue.dto.JobResponse;
 import com.distributed.jobqueue.model.Job;
 import com.distributed.jobqueue.model.JobStatus;
 import com.distributed.jobqueue.repository.JobRepository;
+import com.distributed.jobqueue.service.JobResultService;
 import com.distributed.jobqueue.service.JobService;
+import com.distributed.jobqueue.service.ShardRouter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -23,6 +26,8 @@ public class JobController {
 
     private final JobService jobService;
     private final JobRepository jobRepository;
+    private final JobResultService jobResultService;
+    private final ShardRouter shardRouter;
 
     private static final String TENANT_HEADER = "X-Tenant-Id";
 
@@ -48,39 +53,85 @@ public class JobController {
         try {
             // For simplicity we don't enforce tenant isolation on read here,
             // but we can easily check job.tenantId.equals(tenantId).
-            return ResponseEntity.ok(jobService.getJob(id));
+            return ResponseEntity.ok(jobService.getJob(tenantId, id));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.notFound().build();
         }
     }
 
+    /**
+     * Cancels a PENDING or RUNNING job of the calling tenant (404 for other tenants' jobs).
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> cancelJob(
+            @RequestHeader(TENANT_HEADER) String tenantId,
+            @PathVariable Long id
+    ) {
+        try {
+            return ResponseEntity.ok(jobService.cancelJob(tenantId, id));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(e.getMessage()); // Conflict
+        }
+    }
+
+    /**
+     * Streams the job's stored result.
+     * Supports HTTP Range requests (206 Partial Content) for large outputs.
+     */
+    @GetMapping("/{id}/result")
+    public ResponseEntity<?> getJobResult(
+            @RequestHeader(TENANT_HEADER) String tenantId,
+            @PathVariable Long id
+    ) {
+        return shardRouter.onTenantShard(tenantId, () -> {
+            // another tenant's job is reported as missing, not as forbidden
+            boolean owned = jobRepository.findById(id)
+                    .filter(job -> job.getTenantId().equals(tenantId))
+                    .isPresent();
+            if (!owned) {
+                return ResponseEntity.notFound().build();
+            }
+            return jobResultService.findResult(id)
+                    .<ResponseEntity<?>>map(result -> jobResultService.openResult(result)
+                            .<ResponseEntity<?>>map(body -> ResponseEntity.ok()
+                                    .contentType(MediaType.parseMediaType(result.getContentType()))
+                                    .body(body))
+                            // spilled to a file store this instance doesn't share
+                            .orElseGet(() -> ResponseEntity.status(410).body("Job result is no longer available")))
+                    .orElseGet(() -> ResponseEntity.status(404).body("Job has no result yet"));
+        });
+    }
+
     @GetMapping
     public ResponseEntity<?> listJobs(
             @RequestHeader(value = TENANT_HEADER, required = false) String tenantId,
-            @RequestParam(required = false) String status
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "false") boolean includePayload
     ) {
         List<Job> jobs;
 
-        // Tenant-specific fetch if tenant header present
+        // Tenant-specific fetch (on the tenant's shard) if tenant header present
         if (tenantId != null && !tenantId.isBlank()) {
             if (status != null) {
                 JobStatus st = JobStatus.valueOf(status.toUpperCase());
-                jobs = jobRepository.findByTenantIdAndStatus(tenantId, st);
+                jobs = shardRouter.onTenantShard(tenantId, () -> jobRepository.findByTenantIdAndStatus(tenantId, st));
             } else {
-                jobs = jobRepository.findByTenantId(tenantId);
+                jobs = shardRouter.onTenantShard(tenantId, () -> jobRepository.findByTenantId(tenantId));
             }
         } else {
-            // GLOBAL FETCH when no tenant header — UI filter OFF
+            // GLOBAL FETCH across all shards when no tenant header — UI filter OFF
             if (status != null) {
                 JobStatus st = JobStatus.valueOf(status.toUpperCase());
-                jobs = jobRepository.findByStatus(st);
+                jobs = shardRouter.collectAcrossShards(() -> jobRepository.findByStatus(st));
             } else {
-                jobs = jobRepository.findAll();
+                jobs = shardRouter.collectAcrossShards(jobRepository::findAll);
             }
         }
 
         List<JobResponse> responses = jobs.stream()
-                .map(jobService::toResponse)
+                .map(job -> jobService.toResponse(job, includePayload))
                 .toList();
 
         return ResponseEntity.ok(responses);
@@ -91,33 +142,38 @@ public class JobController {
     public ResponseEntity<?> summary(
             @RequestParam String tenantId
     ) {
-        long total = jobRepository.countByTenantId(tenantId);
-        long pending = jobRepository.countByTenantIdAndStatusIn(tenantId, List.of(JobStatus.PENDING));
-        long running = jobRepository.countByTenantIdAndStatusIn(tenantId, List.of(JobStatus.RUNNING));
-        long completed = jobRepository.countByTenantIdAndStatusIn(tenantId, List.of(JobStatus.COMPLETED));
-        long failed = jobRepository.countByTenantIdAndStatusIn(tenantId, List.of(JobStatus.FAILED));
-        long dlq = jobRepository.countByTenantIdAndStatusIn(tenantId, List.of(JobStatus.DLQ));
-
-        Map<String, Long> summary = Map.of(
-                "total", total,
-                "pending", pending,
-                "running", running,
-                "completed", completed,
-                "failed", failed,
-                "dlq", dlq
-        );
+        Map<String, Long> summary = shardRouter.onTenantShard(tenantId, () -> {
+            long total = jobRepository.countByTenantId(tenantId);
+            long pending = jobRepository.countByTenantIdAndStatusIn(tenantId, List.of(JobStatus.PENDING));
+            long running = jobRepository.countByTenantIdAndStatusIn(tenantId, List.of(JobStatus.RUNNING));
+            long completed = jobRepository.countByTenantIdAndStatusIn(tenantId, List.of(JobStatus.COMPLETED));
+            long failed = jobRepository.countByTenantIdAndStatusIn(tenantId, List.of(JobStatus.FAILED));
+            long dlq = jobRepository.countByTenantIdAndStatusIn(tenantId, List.of(JobStatus.DLQ));
+            long cancelled = jobRepository.countByTenantIdAndStatusIn(tenantId, List.of(JobStatus.CANCELLED));
+
+            return Map.of(
+                    "total", total,
+                    "pending", pending,
+                    "running", running,
+                    "completed", completed,
+                    "failed", failed,
+                    "dlq", dlq,
+                    "cancelled", cancelled
+            );
+        });
         return ResponseEntity.ok(summary);
     }
 
     @GetMapping("/summary/global")
     public ResponseEntity<?> globalSummary() {
 
-        long total = jobRepository.count();
-        long pending = jobRepository.countByStatus(JobStatus.PENDING);
-        long running = jobRepository.countByStatus(JobStatus.RUNNING);
-        long completed = jobRepository.countByStatus(JobStatus.COMPLETED);
-        long failed = jobRepository.countByStatus(JobStatus.FAILED);
-        long dlq = jobRepository.countByStatus(JobStatus.DLQ);
+        long total = shardRouter.sumAcrossShards(jobRepository::count);
+        long pending = countAcrossShards(JobStatus.PENDING);
+        long running = countAcrossShards(JobStatus.RUNNING);
+        long completed = countAcrossShards(JobStatus.COMPLETED);
+        long failed = countAcrossShards(JobStatus.FAILED);
+        long dlq = countAcrossShards(JobStatus.DLQ);
+        long cancelled = countAcrossShards(JobStatus.CANCELLED);
 
         return ResponseEntity.ok(Map.of(
                 "pending", pending,
@@ -125,8 +181,12 @@ public class JobController {
                 "completed", completed,
                 "failed", failed,
                 "dlq", dlq,
+                "cancelled", cancelled,
                 "total", total
         ));
     }
 
+    private long countAcrossShards(JobStatus status) {
+        return shardRouter.sumAcrossShards(() -> jobRepository.countByStatus(status));
+    }
 }
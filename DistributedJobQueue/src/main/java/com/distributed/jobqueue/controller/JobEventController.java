@@ -2,11 +2,13 @@ package com.distributed.jobqueue.controller;
 
 import com.distributed.jobqueue.model.JobEvent;
 import com.distributed.jobqueue.repository.JobEventRepository;
+import com.distributed.jobqueue.service.ShardRouter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Comparator;
 import java.util.List;
 
 @RestController
@@ -14,10 +16,19 @@ import java.util.List;
 @RequiredArgsConstructor
 public class JobEventController {
 
+    private static final int EVENT_LIMIT = 50;
+
     private final JobEventRepository repo;
+    private final ShardRouter shardRouter;
 
+    /**
+     * Latest 50 events across all shards.
+     */
     @GetMapping
     public List<JobEvent> getEvents() {
-        return repo.findTop50ByOrderByTimestampDesc();
+        return shardRouter.collectAcrossShards(repo::findTop50ByOrderByTimestampDesc).stream()
+                .sorted(Comparator.comparing(JobEvent::getTimestamp).reversed())
+                .limit(EVENT_LIMIT)
+                .toList();
     }
 }
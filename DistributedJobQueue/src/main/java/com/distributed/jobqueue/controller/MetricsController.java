@@ -2,11 +2,16 @@ package com.distributed.jobqueue.controller;
 
 import com.distributed.jobqueue.model.JobStatus;
 import com.distributed.jobqueue.repository.JobRepository;
+import com.distributed.jobqueue.service.ShardRouter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Simple JSON metrics endpoint for observability.
@@ -16,15 +21,18 @@ import java.util.Map;
 public class MetricsController {
 
     private final JobRepository jobRepository;
+    private final MeterRegistry meterRegistry;
+    private final ShardRouter shardRouter;
 
     @GetMapping("/api/metrics")
     public Map<String, Object> metrics() {
-        long total = jobRepository.count();
-        long completed = jobRepository.countByStatus(JobStatus.COMPLETED);
-        long failed = jobRepository.countByStatus(JobStatus.FAILED);
-        long running = jobRepository.countByStatus(JobStatus.RUNNING);
-        long pending = jobRepository.countByStatus(JobStatus.PENDING);
-        long dlq = jobRepository.countByStatus(JobStatus.DLQ);
+        long total = shardRouter.sumAcrossShards(jobRepository::count);
+        long completed = countAcrossShards(JobStatus.COMPLETED);
+        long failed = countAcrossShards(JobStatus.FAILED);
+        long running = countAcrossShards(JobStatus.RUNNING);
+        long pending = countAcrossShards(JobStatus.PENDING);
+        long dlq = countAcrossShards(JobStatus.DLQ);
+        long cancelled = countAcrossShards(JobStatus.CANCELLED);
 
         return Map.of(
                 "totalJobs", total,
@@ -32,7 +40,48 @@ public class MetricsController {
                 "failedJobs", failed,
                 "runningJobs", running,
                 "pendingJobs", pending,
-                "dlqJobs", dlq
+                "dlqJobs", dlq,
+                "cancelledJobs", cancelled,
+                "dbPool", dbPoolMetrics(),
+                "shards", shardRouter.shards().size()
         );
     }
+
+    private long countAcrossShards(JobStatus status) {
+        return shardRouter.sumAcrossShards(() -> jobRepository.countByStatus(status));
+    }
+
+    /**
+     * Connection pool health, from the Hikari meters (summed over all shard pools).
+     * acquire* is the time callers waited for a pooled connection.
+     */
+    private Map<String, Object> dbPoolMetrics() {
+        double acquireCount = 0;
+        double acquireTotalMs = 0;
+        double acquireMaxMs = 0;
+        for (Timer t : meterRegistry.find("hikaricp.connections.acquire").timers()) {
+            acquireCount += t.count();
+            acquireTotalMs += t.totalTime(TimeUnit.MILLISECONDS);
+            acquireMaxMs = Math.max(acquireMaxMs, t.max(TimeUnit.MILLISECONDS));
+        }
+
+        return Map.of(
+                "active", sumGauges("hikaricp.connections.active"),
+                "idle", sumGauges("hikaricp.connections.idle"),
+                "pending", sumGauges("hikaricp.connections.pending"),
+                "max", sumGauges("hikaricp.connections.max"),
+                "acquireCount", (long) acquireCount,
+                "acquireMeanMs", acquireCount > 0 ? acquireTotalMs / acquireCount : 0.0,
+                "acquireMaxMs", acquireMaxMs,
+                "timeouts", (long) meterRegistry.find("hikaricp.connections.timeout").counters().stream()
+                        .mapToDouble(c -> c.count())
+                        .sum()
+        );
+    }
+
+    private long sumGauges(String name) {
+        return (long) meterRegistry.find(name).gauges().stream()
+                .mapToDouble(Gauge::value)
+                .sum();
+    }
 }
@@ -0,0 +1,58 @@
+package com.distributed.jobqueue.controller;
+
+import com.distributed.jobqueue.service.ShardRouter;
+import com.distributed.jobqueue.service.TenantMoveService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Shard placement lookup and online tenant moves.
+ */
+@RestController
+@RequestMapping("/api/admin/shards")
+@RequiredArgsConstructor
+public class ShardAdminController {
+
+    private final ShardRouter shardRouter;
+    private final TenantMoveService tenantMoveService;
+
+    @GetMapping
+    public Map<String, Object> shards() {
+        return Map.of(
+                "shards", shardRouter.shards(),
+                "directory", shardRouter.directoryShard()
+        );
+    }
+
+    @GetMapping("/tenants/{tenantId}")
+    public Map<String, Object> tenantPlacement(@PathVariable String tenantId) {
+        return Map.of(
+                "tenantId", tenantId,
+                "shard", shardRouter.shardFor(tenantId),
+                "moving", shardRouter.isMoving(tenantId)
+        );
+    }
+
+    /**
+     * Moves a tenant to another shard. Blocks until the move finishes.
+     */
+    @PostMapping("/tenants/{tenantId}/move")
+    public ResponseEntity<?> moveTenant(
+            @PathVariable String tenantId,
+            @RequestParam String targetShard
+    ) {
+        try {
+            return ResponseEntity.ok(tenantMoveService.moveTenant(tenantId, targetShard));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(e.getMessage()); // Conflict
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(503).body("Tenant move interrupted");
+        }
+    }
+}
@@ -8,7 +8,18 @@ import lombok.Data;
 @Data
 public class CreateJobRequest {
 
+    /**
+     * JSON or plain text as-is; base64 when contentType is "binary".
+     */
     private String payload;
+
+    /**
+     * "json", "text" or "binary". Without it, a payload that parses as JSON is
+     * stored as json and anything else as text.
+     */
+    private String contentType;
     private String idempotencyKey;
     private Integer maxRetries;
+    private String type;
+    private Integer timeoutSeconds;
 }
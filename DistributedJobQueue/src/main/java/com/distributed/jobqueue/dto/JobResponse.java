@@ -1,6 +1,7 @@
 package com.distributed.jobqueue.dto;
 
 import com.distributed.jobqueue.model.JobStatus;
+import com.distributed.jobqueue.model.PayloadContentType;
 import lombok.Builder;
 import lombok.Data;
 
@@ -14,10 +15,15 @@ import java.time.Instant;
 public class JobResponse {
     private Long id;
     private String tenantId;
+    private String type;
     private JobStatus status;
+    private PayloadContentType contentType;
+    private Integer payloadSize;
     private String payload;
     private int attemptCount;
     private int maxRetries;
+    private Integer timeoutSeconds;
+    private boolean cancelRequested;
     private Instant createdAt;
     private Instant updatedAt;
     private Instant completedAt;
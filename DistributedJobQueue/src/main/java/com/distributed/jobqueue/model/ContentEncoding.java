@@ -0,0 +1,9 @@
+package com.distributed.jobqueue.model;
+
+/**
+ * How stored bytes (job payloads and results) are encoded.
+ */
+public enum ContentEncoding {
+    IDENTITY,
+    GZIP
+}
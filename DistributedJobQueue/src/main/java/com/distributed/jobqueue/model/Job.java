@@ -13,6 +13,7 @@ import java.time.Instant;
         name = "jobs",
         indexes = {
                 @Index(name = "idx_tenant_status", columnList = "tenantId,status"),
+                @Index(name = "idx_status_lease", columnList = "status,leasedUntil"),
                 @Index(name = "idx_idempotency", columnList = "tenantId,idempotencyKey", unique = true)
         }
 )
@@ -37,14 +38,45 @@ public class Job {
      */
     private String idempotencyKey;
 
+    /**
+     * Optional job type, used to pick a per-type execution timeout.
+     */
+    private String type;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private JobStatus status;
 
 
+    /**
+     * Uncompressed JSON/TEXT payload. Compressed and binary payloads use payloadData instead.
+     */
     @Lob
     private String payload;
 
+    /**
+     * gzip-compressed or binary payload bytes (null when payload holds the text).
+     */
+    @Column(columnDefinition = "bytea")
+    private byte[] payloadData;
+
+    /**
+     * Null on rows created before content types existed; read as JSON.
+     */
+    @Enumerated(EnumType.STRING)
+    private PayloadContentType payloadContentType;
+
+    /**
+     * Encoding of payloadData; null/IDENTITY means stored as-is.
+     */
+    @Enumerated(EnumType.STRING)
+    private ContentEncoding payloadEncoding;
+
+    /**
+     * Payload size in bytes before compression.
+     */
+    private Integer payloadSize;
+
     /**
      * How many attempts made so far.
      */
@@ -63,6 +95,17 @@ public class Job {
      */
     private Instant leasedUntil;
 
+    /**
+     * Optional per-job execution deadline; overrides the per-type/default timeout.
+     */
+    private Integer timeoutSeconds;
+
+    /**
+     * Set when a RUNNING job is cancelled; the worker executing it aborts the attempt.
+     */
+    @Column(nullable = false, columnDefinition = "boolean default false")
+    private boolean cancelRequested;
+
     private Instant createdAt;
     private Instant updatedAt;
     private Instant completedAt;
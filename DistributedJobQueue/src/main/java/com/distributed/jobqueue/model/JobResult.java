@@ -0,0 +1,62 @@
+package com.distributed.jobqueue.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Output produced by a job handler.
+ *
+ * Kept in its own table (keyed by job id) so the hot `jobs` rows scanned
+ * while leasing never carry result bytes.
+ * Small results are stored inline (optionally gzip-compressed); results above
+ * the inline cap are spilled to the local file store and only their path is kept.
+ */
+@Entity
+@Table(name = "job_results")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JobResult {
+
+    @Id
+    private Long jobId;
+
+    @Column(nullable = false)
+    private String tenantId;
+
+    @Column(nullable = false)
+    private String contentType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ContentEncoding encoding;
+
+    /**
+     * Size of the result as produced by the handler (before compression).
+     */
+    private long originalSize;
+
+    /**
+     * Size of the bytes actually stored (inline or on disk).
+     */
+    private long storedSize;
+
+    /**
+     * Inline result bytes, null when the result was spilled to the file store.
+     */
+    @Column(columnDefinition = "bytea")
+    private byte[] data;
+
+    /**
+     * Location in the local file store, null when the result is stored inline.
+     */
+    private String storagePath;
+
+    private Instant createdAt;
+}
@@ -0,0 +1,11 @@
+package com.distributed.jobqueue.model;
+
+/**
+ * Kind of data a job payload carries.
+ * BINARY payloads travel base64-encoded in the JSON API.
+ */
+public enum PayloadContentType {
+    JSON,
+    TEXT,
+    BINARY
+}
@@ -0,0 +1,27 @@
+package com.distributed.jobqueue.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Hides a tenant's jobs on one shard from workers while a tenant move is
+ * copying them (see TenantMoveService). Present in every shard.
+ */
+@Entity
+@Table(name = "tenant_fences")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TenantFence {
+
+    @Id
+    private String tenantId;
+
+    private Instant createdAt;
+}
@@ -0,0 +1,40 @@
+package com.distributed.jobqueue.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Pins a tenant to a shard, overriding the consistent-hash placement.
+ * Lives in the directory shard only.
+ * While MOVING, shard is still the source and moveTarget/moveStartedAt describe
+ * the move, so an abandoned one can be finished or rolled back.
+ */
+@Entity
+@Table(name = "tenant_shard_overrides")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TenantShardOverride {
+
+    @Id
+    private String tenantId;
+
+    @Column(nullable = false)
+    private String shard;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TenantShardState state;
+
+    private String moveTarget;
+
+    private Instant moveStartedAt;
+
+    private Instant updatedAt;
+}
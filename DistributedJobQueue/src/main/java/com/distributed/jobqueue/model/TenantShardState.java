@@ -0,0 +1,9 @@
+package com.distributed.jobqueue.model;
+
+public enum TenantShardState {
+    ACTIVE,
+    /**
+     * Tenant is being copied to another shard; new submissions are rejected.
+     */
+    MOVING
+}
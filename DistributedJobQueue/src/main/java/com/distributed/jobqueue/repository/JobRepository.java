@@ -3,11 +3,17 @@ package com.distributed.jobqueue.repository;
 import com.distributed.jobqueue.model.Job;
 import com.distributed.jobqueue.model.JobStatus;
 import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -35,16 +41,90 @@ public interface JobRepository extends JpaRepository<Job, Long> {
     long countByStatus(JobStatus status);
 
     /**
-     * Fetches PENDING jobs that are not currently leased.
+     * Fetches up to one page of leasable jobs: PENDING jobs that are not currently leased,
+     * and RUNNING jobs whose lease expired (their worker died or stalled).
+     * Tenants fenced on this shard by a tenant move are skipped.
      * PESSIMISTIC_WRITE ensures only one worker can lease a given row at a time.
-     * Multiple app instances can call this concurrently without collisions.
+     * The SKIP LOCKED hint (lock timeout -2) makes concurrent callers skip rows another
+     * worker is leasing instead of waiting, so app instances lease disjoint batches.
      */
     @Query("""
            select j from Job j
-           where j.status = 'PENDING'
-             and (j.leasedUntil is null or j.leasedUntil < :now)
+           where ((j.status = 'PENDING' and (j.leasedUntil is null or j.leasedUntil < :now))
+                  or (j.status = 'RUNNING' and j.leasedUntil < :now))
+             and not exists (select f from TenantFence f where f.tenantId = j.tenantId)
            order by j.createdAt asc
            """)
     @Lock(LockModeType.PESSIMISTIC_WRITE)
-    List<Job> findPendingForLease(Instant now);
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    List<Job> findLeasable(Instant now, Pageable page);
+
+    /**
+     * Same predicate as findLeasable, without locking: also sees rows other workers
+     * hold locks on right now (which findLeasable skips). Meant to be paged to a
+     * single row, as a cheap "anything left?" probe.
+     */
+    @Query("""
+           select j.id from Job j
+           where ((j.status = 'PENDING' and (j.leasedUntil is null or j.leasedUntil < :now))
+                  or (j.status = 'RUNNING' and j.leasedUntil < :now))
+             and not exists (select f from TenantFence f where f.tenantId = j.tenantId)
+           """)
+    List<Long> findLeasableIds(Instant now, Pageable page);
+
+    /**
+     * Extends a lease, but only if it is still the one the caller holds
+     * (same expiry), i.e. it has not expired and been taken over meanwhile.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+           update Job j
+           set j.leasedUntil = :until
+           where j.id = :id and j.status = 'RUNNING' and j.leasedUntil = :leasedUntil
+           """)
+    int renewLease(Long id, Instant leasedUntil, Instant until);
+
+    /**
+     * Pushes the leases of jobs still waiting in a worker's batch out to :until.
+     * Only live leases are extended (an expired one may be taken over already),
+     * and never shortened.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+           update Job j
+           set j.leasedUntil = :until
+           where j.id in :ids and j.status = 'RUNNING'
+             and j.leasedUntil > :now and j.leasedUntil < :until
+           """)
+    int extendQueuedLeases(Collection<Long> ids, Instant now, Instant until);
+
+    /**
+     * Cancels a job that has not been leased yet.
+     * Conditional on status so it never overwrites a concurrent worker transition.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+           update Job j
+           set j.status = 'CANCELLED', j.leasedUntil = null, j.updatedAt = :now
+           where j.id = :id and j.status = 'PENDING'
+           """)
+    int cancelIfPending(Long id, Instant now);
+
+    /**
+     * Flags a RUNNING job so the worker executing it aborts the attempt.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+           update Job j
+           set j.cancelRequested = true, j.updatedAt = :now
+           where j.id = :id and j.status = 'RUNNING'
+           """)
+    int requestCancelIfRunning(Long id, Instant now);
+
+    @Query("select j.cancelRequested from Job j where j.id = :id")
+    boolean isCancelRequested(Long id);
 }
@@ -0,0 +1,7 @@
+package com.distributed.jobqueue.repository;
+
+import com.distributed.jobqueue.model.JobResult;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface JobResultRepository extends JpaRepository<JobResult, Long> {
+}
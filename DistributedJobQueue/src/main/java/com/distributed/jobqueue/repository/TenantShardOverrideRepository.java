@@ -0,0 +1,15 @@
+package com.distributed.jobqueue.repository;
+
+import com.distributed.jobqueue.model.TenantShardOverride;
+import com.distributed.jobqueue.model.TenantShardState;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+/**
+ * Must be called with the directory shard in ShardContext (see ShardRouter).
+ */
+public interface TenantShardOverrideRepository extends JpaRepository<TenantShardOverride, String> {
+
+    List<TenantShardOverride> findByState(TenantShardState state);
+}
@@ -0,0 +1,40 @@
+package com.distributed.jobqueue.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * gzip helpers shared by payload and result storage (JDK codec, no native deps).
+ */
+final class GzipCodec {
+
+    private GzipCodec() {
+    }
+
+    /**
+     * Returns the compressed bytes, or null when compression would not save space.
+     */
+    static byte[] compressIfSmaller(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(32, bytes.length / 2));
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("gzip compression failed", e);
+        }
+        byte[] compressed = out.toByteArray();
+        return compressed.length < bytes.length ? compressed : null;
+    }
+
+    static byte[] decompress(byte[] bytes) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt gzip data", e);
+        }
+    }
+}
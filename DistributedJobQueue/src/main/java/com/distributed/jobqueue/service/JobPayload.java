@@ -0,0 +1,14 @@
+package com.distributed.jobqueue.service;
+
+import com.distributed.jobqueue.model.PayloadContentType;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * A job payload decoded once per attempt and handed to the handler.
+ * JSON payloads are already parsed; handlers never re-parse the raw string.
+ *
+ * @param text payload text for JSON/TEXT payloads, null for BINARY
+ * @param json parsed tree for JSON payloads, null otherwise (or if a legacy payload isn't valid JSON)
+ */
+public record JobPayload(PayloadContentType contentType, String text, JsonNode json) {
+}
@@ -0,0 +1,201 @@
+package com.distributed.jobqueue.service;
+
+import com.distributed.jobqueue.model.ContentEncoding;
+import com.distributed.jobqueue.model.Job;
+import com.distributed.jobqueue.model.JobResult;
+import com.distributed.jobqueue.repository.JobResultRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Stores and serves job handler output.
+ *
+ * Storage rules:
+ * - Results larger than the hard cap are rejected (the job attempt fails)
+ * - Results above the inline cap are spilled to the file store as-is,
+ *   so they can be served with byte ranges straight from disk. The store must be
+ *   shared by all instances (any instance may serve a result, tenant moves keep paths)
+ * - Inline results above the compression threshold are gzip-compressed
+ *   (kept only if compression actually saves space)
+ */
+@Service
+@RequiredArgsConstructor
+public class JobResultService {
+
+    private static final Logger log = LoggerFactory.getLogger(JobResultService.class);
+
+    private final JobResultRepository jobResultRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${jobqueue.results.compress-threshold-bytes:4096}")
+    private int compressThresholdBytes;
+
+    @Value("${jobqueue.results.max-inline-bytes:262144}")
+    private int maxInlineBytes;
+
+    @Value("${jobqueue.results.max-bytes:67108864}")
+    private long maxBytes;
+
+    @Value("${jobqueue.results.file-store-dir:data/results}")
+    private String fileStoreDir;
+
+    /**
+     * Serializes a handler's return value and prepares it for storage.
+     * byte[] is stored as binary, String as plain text, anything else as JSON.
+     */
+    public JobResult prepareResult(Job job, Object result) {
+        if (result instanceof byte[] bytes) {
+            return prepareResult(job, bytes, MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        }
+        if (result instanceof String text) {
+            return prepareResult(job, text.getBytes(StandardCharsets.UTF_8), MediaType.TEXT_PLAIN_VALUE);
+        }
+        try {
+            return prepareResult(job, objectMapper.writeValueAsBytes(result), MediaType.APPLICATION_JSON_VALUE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to serialize job result", e);
+        }
+    }
+
+    /**
+     * Does the expensive part of storing a result (compression, spill file write)
+     * without touching the database, so it can run before the completion transaction.
+     * The returned row is persisted by saveResult, or its file dropped by discardResult.
+     */
+    public JobResult prepareResult(Job job, byte[] bytes, String contentType) {
+        if (bytes.length > maxBytes) {
+            throw new IllegalStateException("Job result too large (" + bytes.length + " bytes, max " + maxBytes + ")");
+        }
+
+        JobResult.JobResultBuilder builder = JobResult.builder()
+                .jobId(job.getId())
+                .tenantId(job.getTenantId())
+                .contentType(contentType)
+                .originalSize(bytes.length)
+                .createdAt(Instant.now());
+
+        try {
+            if (bytes.length > maxInlineBytes) {
+                Path spillFile = newResultFile(job.getId());
+                Files.createDirectories(spillFile.getParent());
+                Files.write(spillFile, bytes);
+                builder.encoding(ContentEncoding.IDENTITY)
+                        .storedSize(bytes.length)
+                        .storagePath(spillFile.toString());
+                log.info("Job result spilled to file store: jobId={}, bytes={}", job.getId(), bytes.length);
+            } else {
+                byte[] stored = bytes;
+                ContentEncoding encoding = ContentEncoding.IDENTITY;
+                if (bytes.length >= compressThresholdBytes) {
+                    byte[] compressed = GzipCodec.compressIfSmaller(bytes);
+                    if (compressed != null) {
+                        stored = compressed;
+                        encoding = ContentEncoding.GZIP;
+                    }
+                }
+                builder.encoding(encoding)
+                        .storedSize(stored.length)
+                        .data(stored);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store job result", e);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Persists a prepared result, replacing any earlier one of the job
+     * (a retried/duplicated execution may have stored one).
+     * Inside a transaction, spill files follow its outcome: on rollback the new
+     * file is removed, on commit the replaced one is.
+     */
+    public JobResult saveResult(JobResult result) {
+        String previousFile = jobResultRepository.findById(result.getJobId())
+                .map(JobResult::getStoragePath)
+                .orElse(null);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            JobResult saved = jobResultRepository.save(result);
+            deleteQuietly(previousFile);
+            return saved;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    deleteQuietly(previousFile);
+                } else {
+                    discardResult(result);
+                }
+            }
+        });
+        return jobResultRepository.save(result);
+    }
+
+    /**
+     * Drops the spill file of a prepared result that will never be saved.
+     */
+    public void discardResult(JobResult result) {
+        deleteQuietly(result.getStoragePath());
+    }
+
+    private static void deleteQuietly(String file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(Paths.get(file));
+        } catch (IOException e) {
+            log.warn("Failed to delete result file {}: {}", file, e.getMessage());
+        }
+    }
+
+    public Optional<JobResult> findResult(Long jobId) {
+        return jobResultRepository.findById(jobId);
+    }
+
+    /**
+     * Returns the decoded result bytes as a Resource with a known length,
+     * so callers can serve byte ranges of it.
+     * Empty if the result was spilled to a file this instance cannot read.
+     */
+    public Optional<Resource> openResult(JobResult result) {
+        if (result.getStoragePath() != null) {
+            FileSystemResource file = new FileSystemResource(result.getStoragePath());
+            if (!file.isReadable()) {
+                log.warn("Result file missing from file store: jobId={}, path={}", result.getJobId(), result.getStoragePath());
+                return Optional.empty();
+            }
+            return Optional.of(file);
+        }
+        if (result.getEncoding() == ContentEncoding.GZIP) {
+            return Optional.of(new ByteArrayResource(GzipCodec.decompress(result.getData())));
+        }
+        return Optional.of(new ByteArrayResource(result.getData()));
+    }
+
+    // unique per attempt, so a duplicate execution never overwrites a committed file
+    private Path newResultFile(Long jobId) {
+        return Paths.get(fileStoreDir, jobId + "-" + UUID.randomUUID() + ".bin");
+    }
+}
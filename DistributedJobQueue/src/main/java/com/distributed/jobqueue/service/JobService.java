@@ -1,5 +1,6 @@
 package com.distributed.jobqueue.service;
 
+import com.distributed.jobqueue.config.WorkerProperties;
 import com.distributed.jobqueue.dto.CreateJobRequest;
 import com.distributed.jobqueue.dto.JobResponse;
 import com.distributed.jobqueue.model.Job;
@@ -20,6 +21,7 @@ import java.util.List;
  * - Enforce per-tenant rate limits
  * - Enforce max concurrent jobs per tenant (pending + running)
  * - Apply idempotency key logic
+ * - Validate timeouts (max jobqueue.worker.max-timeout) and encode payloads (see PayloadCodec)
  * - Map Job entity to DTO
  */
 @Service
@@ -35,20 +37,27 @@ public class JobService {
     private final RateLimiterService rateLimiterService;
 
     private final JobEventService jobEventService;
+    private final WorkerService workerService;
+    private final ShardRouter shardRouter;
+    private final PayloadCodec payloadCodec;
+    private final WorkerProperties workerProperties;
 
     public JobResponse submitJob(String tenantId, CreateJobRequest request) {
         if (!rateLimiterService.allowSubmission(tenantId)) {
             throw new IllegalStateException("Rate limit exceeded (10 new jobs per minute)");
         }
 
-        // Idempotency: if key is provided, return existing job if present
-        if (request.getIdempotencyKey() != null && !request.getIdempotencyKey().isBlank()) {
-            return jobRepository.findByTenantIdAndIdempotencyKey(tenantId, request.getIdempotencyKey())
-                    .map(this::toResponse)
-                    .orElseGet(() -> createNewJob(tenantId, request));
-        }
+        // rejected (IllegalStateException) while the tenant is being moved
+        return shardRouter.writeOnTenantShard(tenantId, () -> {
+            // Idempotency: if key is provided, return existing job if present
+            if (request.getIdempotencyKey() != null && !request.getIdempotencyKey().isBlank()) {
+                return jobRepository.findByTenantIdAndIdempotencyKey(tenantId, request.getIdempotencyKey())
+                        .map(this::toResponse)
+                        .orElseGet(() -> createNewJob(tenantId, request));
+            }
 
-        return createNewJob(tenantId, request);
+            return createNewJob(tenantId, request);
+        });
     }
 
     private JobResponse createNewJob(String tenantId, CreateJobRequest request) {
@@ -60,12 +69,26 @@ public class JobService {
             throw new IllegalStateException("Too many concurrent jobs submitted for this tenant, (max 5 pending/running) per tenant is allowed ");
         }
 
+        Integer timeoutSeconds = request.getTimeoutSeconds();
+        long maxTimeoutSeconds = workerProperties.getMaxTimeout().toSeconds();
+        if (timeoutSeconds != null && timeoutSeconds > maxTimeoutSeconds) {
+            throw new IllegalArgumentException("timeoutSeconds too large (max " + maxTimeoutSeconds + ")");
+        }
+
+        PayloadCodec.EncodedPayload payload = payloadCodec.encode(request.getPayload(), request.getContentType());
+
         Instant now = Instant.now();
         Job job = Job.builder()
                 .tenantId(tenantId)
                 .idempotencyKey(request.getIdempotencyKey())
                 .status(JobStatus.PENDING)
-                .payload(request.getPayload())
+                .type(request.getType())
+                .payload(payload.text())
+                .payloadData(payload.data())
+                .payloadContentType(payload.contentType())
+                .payloadEncoding(payload.encoding())
+                .payloadSize(payload.size())
+                .timeoutSeconds(timeoutSeconds)
                 .attemptCount(0)
                 .maxRetries(request.getMaxRetries() != null ? request.getMaxRetries() : DEFAULT_MAX_RETRIES)
                 .createdAt(now)
@@ -83,20 +106,77 @@ public class JobService {
         return toResponse(saved);
     }
 
-    public JobResponse getJob(Long id) {
-        Job job = jobRepository.findById(id)
+    /**
+     * Looks the job up on the tenant's shard.
+     */
+    public JobResponse getJob(String tenantId, Long id) {
+        Job job = shardRouter.onTenantShard(tenantId, () -> jobRepository.findById(id))
                 .orElseThrow(() -> new IllegalArgumentException("Job not found"));
         return toResponse(job);
     }
 
+    /**
+     * Cancels a job.
+     * - PENDING jobs are moved to CANCELLED so they are never leased
+     * - RUNNING jobs are flagged; the executing worker interrupts the handler and
+     *   records CANCELLED (immediately if the job runs on this instance)
+     * Throws IllegalArgumentException if the job doesn't exist or belongs to another tenant,
+     * IllegalStateException if the job already finished or the tenant is being moved.
+     */
+    public JobResponse cancelJob(String tenantId, Long id) {
+        return shardRouter.writeOnTenantShard(tenantId, () -> cancelOnShard(tenantId, id));
+    }
+
+    private JobResponse cancelOnShard(String tenantId, Long id) {
+        // another tenant's job is reported as missing, not as forbidden
+        findTenantJob(tenantId, id);
+
+        // both updates are conditional, so the status they match is the current one;
+        // the job may be leased between them, hence PENDING first, then RUNNING
+        Instant now = Instant.now();
+        if (jobRepository.cancelIfPending(id, now) == 1) {
+            log.info("Job cancelled: jobId={}, tenantId={}", id, tenantId);
+            jobEventService.logEvent(id, tenantId, "CANCELLED", "Job cancelled before execution");
+        } else if (jobRepository.requestCancelIfRunning(id, now) == 1) {
+            workerService.cancelRunning(id);
+            log.info("Job cancel requested: jobId={}, tenantId={}", id, tenantId);
+            jobEventService.logEvent(id, tenantId, "CANCEL_REQUESTED", "Cancel requested for running job");
+        } else {
+            JobStatus current = findTenantJob(tenantId, id).getStatus();
+            if (current != JobStatus.CANCELLED) {
+                throw new IllegalStateException("Job already finished with status " + current);
+            }
+        }
+
+        return getJob(tenantId, id);
+    }
+
+    private Job findTenantJob(String tenantId, Long id) {
+        return jobRepository.findById(id)
+                .filter(job -> job.getTenantId().equals(tenantId))
+                .orElseThrow(() -> new IllegalArgumentException("Job not found"));
+    }
+
     public JobResponse toResponse(Job job) {
+        return toResponse(job, true);
+    }
+
+    /**
+     * includePayload=false skips decompressing/serializing the payload (list views).
+     */
+    public JobResponse toResponse(Job job, boolean includePayload) {
         return JobResponse.builder()
                 .id(job.getId())
                 .tenantId(job.getTenantId())
+                .type(job.getType())
                 .status(job.getStatus())
-                .payload(job.getPayload())
+                .contentType(job.getPayloadContentType())
+                .payload(includePayload ? payloadCodec.toApiString(job) : null)
+                .payloadSize(job.getPayloadSize())
                 .attemptCount(job.getAttemptCount())
                 .maxRetries(job.getMaxRetries())
+                .timeoutSeconds(job.getTimeoutSeconds())
+                .cancelRequested(job.isCancelRequested())
                 .createdAt(job.getCreatedAt())
                 .updatedAt(job.getUpdatedAt())
                 .completedAt(job.getCompletedAt())
@@ -0,0 +1,216 @@
+package com.distributed.jobqueue.service;
+
+import com.distributed.jobqueue.model.ContentEncoding;
+import com.distributed.jobqueue.model.Job;
+import com.distributed.jobqueue.model.PayloadContentType;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.cfg.JsonNodeFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Validates, compacts and compresses job payloads at ingest, and decodes them for workers.
+ *
+ * Ingest rules:
+ * - Payloads above the size cap are rejected (IllegalArgumentException) before being parsed
+ * - JSON payloads must parse as exactly one document; they are stored re-serialized
+ *   without whitespace, numbers kept digit for digit (no float rounding, 1.10 stays 1.10)
+ * - Without a content type, JSON is tried and anything else (including empty text,
+ *   or text that merely starts with JSON, like "123 apples") is kept as TEXT
+ *   (what clients sent before content types existed)
+ * - BINARY payloads arrive base64-encoded and are stored as raw bytes
+ * - Payloads above the compression threshold are gzip-compressed into payloadData
+ *   (kept only if compression actually saves space)
+ */
+@Service
+public class PayloadCodec {
+
+    private static final Logger log = LoggerFactory.getLogger(PayloadCodec.class);
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final ObjectMapper objectMapper;
+
+    // strict and lossless: trailing content and duplicate keys fail, decimals stay BigDecimal as written
+    private final ObjectReader jsonReader;
+
+    @Value("${jobqueue.payload.max-bytes:1048576}")
+    private int maxBytes;
+
+    @Value("${jobqueue.payload.compress-threshold-bytes:1024}")
+    private int compressThresholdBytes;
+
+    public PayloadCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.jsonReader = objectMapper.reader()
+                .with(DeserializationFeature.FAIL_ON_TRAILING_TOKENS)
+                .with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS)
+                .without(JsonNodeFeature.STRIP_TRAILING_BIGDECIMAL_ZEROES)
+                .with(JsonParser.Feature.STRICT_DUPLICATE_DETECTION);
+    }
+
+    /**
+     * Storage form of a payload; exactly one of text/data is set for non-empty payloads.
+     */
+    public record EncodedPayload(
+            PayloadContentType contentType,
+            String text,
+            byte[] data,
+            ContentEncoding encoding,
+            int size
+    ) {
+    }
+
+    public EncodedPayload encode(String payload, String contentType) {
+        PayloadContentType requested = parseContentType(contentType);
+        PayloadContentType type = requested != null ? requested : PayloadContentType.JSON;
+        if (payload == null) {
+            return new EncodedPayload(type, null, null, ContentEncoding.IDENTITY, 0);
+        }
+        checkRawSize(payload, type);
+
+        byte[] bytes;
+        if (type == PayloadContentType.BINARY) {
+            bytes = decodeBase64(payload);
+        } else if (type == PayloadContentType.TEXT) {
+            bytes = payload.getBytes(StandardCharsets.UTF_8);
+        } else {
+            JsonNode tree = readJson(payload);
+            if (tree != null) {
+                bytes = compactJson(tree);
+            } else if (requested == null) {
+                type = PayloadContentType.TEXT;
+                bytes = payload.getBytes(StandardCharsets.UTF_8);
+            } else {
+                throw new IllegalArgumentException("Payload is not valid JSON");
+            }
+        }
+        if (bytes.length > maxBytes) {
+            throw new IllegalArgumentException("Payload too large (" + bytes.length + " bytes, max " + maxBytes + ")");
+        }
+
+        if (bytes.length >= compressThresholdBytes) {
+            byte[] compressed = GzipCodec.compressIfSmaller(bytes);
+            if (compressed != null) {
+                return new EncodedPayload(type, null, compressed, ContentEncoding.GZIP, bytes.length);
+            }
+        }
+        if (type == PayloadContentType.BINARY) {
+            return new EncodedPayload(type, null, bytes, ContentEncoding.IDENTITY, bytes.length);
+        }
+        return new EncodedPayload(type, new String(bytes, StandardCharsets.UTF_8), null,
+                ContentEncoding.IDENTITY, bytes.length);
+    }
+
+    /**
+     * Decodes the stored payload once; JSON is parsed here so handlers get a ready tree.
+     */
+    public JobPayload decode(Job job) {
+        PayloadContentType type = contentTypeOf(job);
+        byte[] bytes = rawBytes(job);
+
+        String text = type == PayloadContentType.BINARY ? null : new String(bytes, StandardCharsets.UTF_8);
+        JsonNode json = null;
+        if (type == PayloadContentType.JSON && bytes.length > 0) {
+            try {
+                json = jsonReader.readTree(bytes);
+            } catch (IOException e) {
+                // only possible for rows stored before ingest validation
+                log.warn("Stored payload of job {} is not valid JSON: {}", job.getId(), e.getMessage());
+            }
+        }
+        return new JobPayload(type, text, json);
+    }
+
+    /**
+     * Payload as returned by the API: text as-is, binary as base64.
+     */
+    public String toApiString(Job job) {
+        if (job.getPayloadData() == null) {
+            return job.getPayload();
+        }
+        byte[] bytes = rawBytes(job);
+        return contentTypeOf(job) == PayloadContentType.BINARY
+                ? Base64.getEncoder().encodeToString(bytes)
+                : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static PayloadContentType contentTypeOf(Job job) {
+        return job.getPayloadContentType() != null ? job.getPayloadContentType() : PayloadContentType.JSON;
+    }
+
+    private static byte[] rawBytes(Job job) {
+        if (job.getPayloadData() != null) {
+            return job.getPayloadEncoding() == ContentEncoding.GZIP
+                    ? GzipCodec.decompress(job.getPayloadData())
+                    : job.getPayloadData();
+        }
+        return job.getPayload() != null ? job.getPayload().getBytes(StandardCharsets.UTF_8) : EMPTY;
+    }
+
+    /**
+     * Rejects oversized input before it is parsed or decoded. A UTF-8 payload has at least
+     * as many bytes as chars; base64 decodes to 3 bytes per 4 chars.
+     */
+    private void checkRawSize(String payload, PayloadContentType type) {
+        long minBytes = type == PayloadContentType.BINARY
+                ? payload.length() / 4L * 3
+                : payload.length();
+        if (minBytes > maxBytes) {
+            throw new IllegalArgumentException("Payload too large (at least " + minBytes + " bytes, max " + maxBytes + ")");
+        }
+    }
+
+    // null when the request didn't say
+    private static PayloadContentType parseContentType(String contentType) {
+        if (contentType == null || contentType.isBlank()) {
+            return null;
+        }
+        try {
+            return PayloadContentType.valueOf(contentType.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported payload content type: " + contentType);
+        }
+    }
+
+    // null if the payload isn't exactly one JSON document (empty input is not JSON)
+    private JsonNode readJson(String payload) {
+        if (payload.isBlank()) {
+            return null;
+        }
+        try {
+            JsonNode tree = jsonReader.readTree(payload);
+            return tree == null || tree.isMissingNode() ? null : tree;
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private byte[] compactJson(JsonNode tree) {
+        try {
+            return objectMapper.writeValueAsBytes(tree);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Failed to serialize payload", e);
+        }
+    }
+
+    private static byte[] decodeBase64(String payload) {
+        try {
+            return Base64.getDecoder().decode(payload);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Binary payload is not valid base64");
+        }
+    }
+}
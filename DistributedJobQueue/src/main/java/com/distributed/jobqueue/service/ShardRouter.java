@@ -0,0 +1,224 @@
+package com.distributed.jobqueue.service;
+
+import com.distributed.jobqueue.config.ShardProperties;
+import com.distributed.jobqueue.model.TenantShardOverride;
+import com.distributed.jobqueue.model.TenantShardState;
+import com.distributed.jobqueue.repository.TenantShardOverrideRepository;
+import com.distributed.jobqueue.shard.ConsistentHashRing;
+import com.distributed.jobqueue.shard.ShardContext;
+import com.distributed.jobqueue.shard.ShardDataSources;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Maps tenants to shards and runs repository work on the right one.
+ *
+ * Placement: an override row (tenant_shard_overrides) wins, otherwise the
+ * consistent-hash ring decides. Overrides are cached and reloaded periodically,
+ * so reads converge within `jobqueue.sharding.override-refresh-ms`.
+ *
+ * Tenant writes (writeOnTenantShard) don't trust the cache: they read the placement
+ * from the directory shard under a shared per-tenant advisory lock, which a tenant
+ * move takes exclusively (awaitTenantWriters) to fence off in-flight writes.
+ *
+ * With sharding disabled there is a single shard and all routing is a no-op.
+ */
+@Service
+public class ShardRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRouter.class);
+
+    static final String SINGLE_SHARD = "default";
+
+    // first key of the two-key advisory locks guarding tenant placement
+    private static final int TENANT_LOCK_CLASS = 0x4a51;
+
+    private final List<String> shards;
+    private final ConsistentHashRing ring;
+    private final TenantShardOverrideRepository overrideRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransactionTemplate;
+
+    private volatile Map<String, TenantShardOverride> overrides = new ConcurrentHashMap<>();
+
+    public ShardRouter(
+            ShardProperties shardProperties,
+            ObjectProvider<ShardDataSources> shardDataSources,
+            TenantShardOverrideRepository overrideRepository,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager
+    ) {
+        ShardDataSources dataSources = shardDataSources.getIfAvailable();
+        this.shards = dataSources != null ? dataSources.names() : List.of(SINGLE_SHARD);
+        this.ring = new ConsistentHashRing(shards, shardProperties.getVirtualNodes());
+        this.overrideRepository = overrideRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    void loadOverrides() {
+        refreshOverrides();
+    }
+
+    @Scheduled(fixedDelayString = "${jobqueue.sharding.override-refresh-ms:10000}")
+    public void refreshOverrides() {
+        if (shards.size() == 1) {
+            return;
+        }
+        List<TenantShardOverride> rows = onShard(directoryShard(), overrideRepository::findAll);
+        overrides = rows.stream()
+                .collect(Collectors.toConcurrentMap(TenantShardOverride::getTenantId, o -> o));
+        log.debug("Loaded {} tenant shard overrides", rows.size());
+    }
+
+    public List<String> shards() {
+        return shards;
+    }
+
+    public String directoryShard() {
+        return shards.get(0);
+    }
+
+    public String shardFor(String tenantId) {
+        TenantShardOverride override = overrides.get(tenantId);
+        return override != null ? override.getShard() : ring.shardFor(tenantId);
+    }
+
+    public boolean isMoving(String tenantId) {
+        TenantShardOverride override = overrides.get(tenantId);
+        return override != null && override.getState() == TenantShardState.MOVING;
+    }
+
+    /**
+     * Writes a tenant override to the directory shard and applies it to this
+     * instance immediately (other instances pick it up on their next refresh).
+     */
+    public void saveOverride(TenantShardOverride override) {
+        onShard(directoryShard(), () -> overrideRepository.save(override));
+        overrides.put(override.getTenantId(), override);
+    }
+
+    public void removeOverride(String tenantId) {
+        onShard(directoryShard(), () -> {
+            overrideRepository.deleteById(tenantId);
+            return null;
+        });
+        overrides.remove(tenantId);
+    }
+
+    /**
+     * Overrides of moves in progress (or abandoned), read from the directory shard.
+     */
+    public List<TenantShardOverride> loadMovingOverrides() {
+        return onShard(directoryShard(), () -> overrideRepository.findByState(TenantShardState.MOVING));
+    }
+
+    public TenantShardOverride currentOverride(String tenantId) {
+        return overrides.get(tenantId);
+    }
+
+    /**
+     * Reads the tenant's override from the directory shard (bypassing the cache)
+     * and refreshes the cached entry with it.
+     */
+    public TenantShardOverride loadOverride(String tenantId) {
+        TenantShardOverride override = onShard(directoryShard(), () -> overrideRepository.findById(tenantId))
+                .orElse(null);
+        cache(tenantId, override);
+        return override;
+    }
+
+    /**
+     * Runs a write for the tenant on the shard the directory shard currently assigns,
+     * holding a shared tenant lock on the directory shard until the write has committed.
+     * Work for the directory shard shares the lock's transaction; work for other shards
+     * runs in its own transaction there.
+     * Throws IllegalStateException while the tenant is being moved.
+     */
+    public <T> T writeOnTenantShard(String tenantId, Supplier<T> work) {
+        if (shards.size() == 1) {
+            return work.get();
+        }
+        return onShard(directoryShard(), () -> transactionTemplate.execute(status -> {
+            jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock_shared(?, hashtext(?))",
+                    TENANT_LOCK_CLASS, tenantId);
+            TenantShardOverride override = overrideRepository.findById(tenantId).orElse(null);
+            cache(tenantId, override);
+            if (override != null && override.getState() == TenantShardState.MOVING) {
+                throw new IllegalStateException("Tenant is being moved to another shard, retry shortly");
+            }
+
+            String shard = override != null ? override.getShard() : ring.shardFor(tenantId);
+            if (shard.equals(directoryShard())) {
+                return work.get();
+            }
+            return onShard(shard, () -> newTransactionTemplate.execute(inner -> work.get()));
+        }));
+    }
+
+    /**
+     * Waits until every tenant write that started before this call has committed.
+     * Called after the tenant was marked MOVING: writes starting later read that
+     * state under the lock and are rejected.
+     */
+    public void awaitTenantWriters(String tenantId) {
+        if (shards.size() == 1) {
+            return;
+        }
+        onShard(directoryShard(), () -> transactionTemplate.execute(status ->
+                jdbcTemplate.queryForList("SELECT pg_advisory_xact_lock(?, hashtext(?))",
+                        TENANT_LOCK_CLASS, tenantId)));
+    }
+
+    private void cache(String tenantId, TenantShardOverride override) {
+        if (override != null) {
+            overrides.put(tenantId, override);
+        } else {
+            overrides.remove(tenantId);
+        }
+    }
+
+    public <T> T onShard(String shard, Supplier<T> work) {
+        return ShardContext.callIn(shard, work);
+    }
+
+    public <T> T onTenantShard(String tenantId, Supplier<T> work) {
+        return onShard(shardFor(tenantId), work);
+    }
+
+    public long sumAcrossShards(LongSupplier work) {
+        long total = 0;
+        for (String shard : shards) {
+            total += onShard(shard, work::getAsLong);
+        }
+        return total;
+    }
+
+    public <T> List<T> collectAcrossShards(Supplier<List<T>> work) {
+        List<T> all = new ArrayList<>();
+        for (String shard : shards) {
+            all.addAll(onShard(shard, work));
+        }
+        return all;
+    }
+}
@@ -0,0 +1,479 @@
+package com.distributed.jobqueue.service;
+
+import com.distributed.jobqueue.model.TenantShardOverride;
+import com.distributed.jobqueue.model.TenantShardState;
+import com.distributed.jobqueue.shard.ShardDataSources;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeSet;
+
+/**
+ * Moves a tenant's jobs, events and results to another shard while the system runs.
+ *
+ * Steps:
+ * 1. Take the tenant's move lock (one move per tenant; held by the mover's session,
+ *    so it disappears with a dead process)
+ * 2. Mark the tenant MOVING (source and target recorded), then take the tenant lock
+ *    exclusively: writes already routed to the source have committed, later ones
+ *    see MOVING and are rejected
+ * 3. Fence the tenant on the source, so workers stop leasing its jobs there
+ * 4. Lock the tenant's jobs on the source shard; retry until none of them holds a live lease
+ * 5. Copy rows to the target (ids preserved) together with a target fence, which
+ *    keeps the copies from being leased, and commit; then delete exactly the copied
+ *    rows and the source fence from the source
+ * 6. Point the tenant's override at the target shard and drop the target fence
+ *
+ * A move that fails or whose process dies is recovered from the fences: if the
+ * source fence is gone the source rows are gone too and the move is finished,
+ * otherwise the target copy is dropped and the tenant stays on the source.
+ * This runs when the move fails, when the tenant is moved again, and periodically
+ * (`jobqueue.sharding.move-recovery-ms`) for moves whose owner is gone.
+ */
+@Service
+@RequiredArgsConstructor
+public class TenantMoveService {
+
+    private static final Logger log = LoggerFactory.getLogger(TenantMoveService.class);
+
+    // first key of the advisory lock owning a tenant's move (see ShardRouter for 0x4a51)
+    private static final int MOVE_LOCK_CLASS = 0x4a52;
+
+    // how long to wait for the tenant's running jobs to finish before giving up
+    private static final Duration RUNNING_DRAIN_TIMEOUT = Duration.ofMinutes(5);
+    private static final long DRAIN_POLL_MILLIS = 1000;
+    private static final int COPY_BATCH_SIZE = 500;
+
+    // copied parents first, deleted children first
+    private static final List<String> COPY_ORDER = List.of("jobs", "job_events", "job_results");
+    private static final List<String> DELETE_ORDER = List.of("job_results", "job_events", "jobs");
+
+    private static final Map<String, String> KEY_COLUMNS = Map.of(
+            "jobs", "id",
+            "job_events", "id",
+            "job_results", "job_id"
+    );
+
+    private final ShardRouter shardRouter;
+    private final ObjectProvider<ShardDataSources> shardDataSources;
+    private final JobEventService jobEventService;
+
+    public Map<String, Object> moveTenant(String tenantId, String targetShard) throws InterruptedException {
+        ShardDataSources dataSources = shardDataSources.getIfAvailable();
+        if (dataSources == null) {
+            throw new IllegalStateException("Sharding is disabled");
+        }
+        dataSources.get(targetShard); // IllegalArgumentException for an unknown shard
+
+        try (MoveLock lock = MoveLock.tryAcquire(directory(dataSources), tenantId)) {
+            if (lock == null) {
+                throw new IllegalStateException("Tenant " + tenantId + " is already being moved");
+            }
+            TenantShardOverride current = shardRouter.loadOverride(tenantId);
+            if (current != null && current.getState() == TenantShardState.MOVING) {
+                // its mover would still hold the move lock if it were alive
+                log.warn("Recovering abandoned tenant move: tenantId={}, started={}",
+                        tenantId, current.getMoveStartedAt());
+                recover(dataSources, current);
+            }
+            return move(dataSources, tenantId, targetShard);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Tenant move failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Finishes or rolls back moves whose process died: MOVING overrides and fences
+     * nobody holds the move lock for.
+     */
+    @Scheduled(fixedDelayString = "${jobqueue.sharding.move-recovery-ms:60000}")
+    public void recoverAbandonedMoves() {
+        ShardDataSources dataSources = shardDataSources.getIfAvailable();
+        if (dataSources == null) {
+            return;
+        }
+
+        Set<String> tenants = new TreeSet<>();
+        try {
+            shardRouter.loadMovingOverrides().forEach(o -> tenants.add(o.getTenantId()));
+            for (String shard : dataSources.names()) {
+                tenants.addAll(fencedTenants(dataSources.get(shard)));
+            }
+        } catch (SQLException | RuntimeException e) {
+            log.warn("Tenant move recovery scan failed: {}", e.getMessage());
+            return;
+        }
+
+        for (String tenantId : tenants) {
+            try (MoveLock lock = MoveLock.tryAcquire(directory(dataSources), tenantId)) {
+                if (lock == null) {
+                    continue; // a live move
+                }
+                TenantShardOverride current = shardRouter.loadOverride(tenantId);
+                if (current != null && current.getState() == TenantShardState.MOVING) {
+                    recover(dataSources, current);
+                } else {
+                    // left by a mover that died between switching the override and unfencing
+                    for (String shard : dataSources.names()) {
+                        removeFence(dataSources.get(shard), tenantId);
+                    }
+                    log.warn("Removed stray tenant fences: tenantId={}", tenantId);
+                }
+            } catch (SQLException | RuntimeException e) {
+                log.warn("Tenant move recovery failed: tenantId={}, error={}", tenantId, e.getMessage());
+            }
+        }
+    }
+
+    private Map<String, Object> move(ShardDataSources dataSources, String tenantId, String targetShard)
+            throws SQLException, InterruptedException {
+        String sourceShard = shardRouter.shardFor(tenantId);
+        if (sourceShard.equals(targetShard)) {
+            return Map.of("tenantId", tenantId, "shard", targetShard, "moved", Map.of());
+        }
+
+        Instant now = Instant.now();
+        TenantShardOverride moving = TenantShardOverride.builder()
+                .tenantId(tenantId)
+                .shard(sourceShard)
+                .state(TenantShardState.MOVING)
+                .moveTarget(targetShard)
+                .moveStartedAt(now)
+                .updatedAt(now)
+                .build();
+        shardRouter.saveOverride(moving);
+        log.info("Tenant move started: tenantId={}, {} -> {}", tenantId, sourceShard, targetShard);
+
+        Map<String, Integer> moved;
+        try {
+            shardRouter.awaitTenantWriters(tenantId);
+            DataSource source = dataSources.get(sourceShard);
+            // from here no worker leases the tenant's jobs on the source, so running ones drain
+            try (Connection connection = source.getConnection()) {
+                connection.setAutoCommit(true);
+                insertFence(connection, tenantId);
+            }
+            moved = copyAndDelete(tenantId, source, dataSources.get(targetShard));
+        } catch (Exception e) {
+            log.warn("Tenant move aborted: tenantId={}, error={}", tenantId, e.getMessage());
+            try {
+                recover(dataSources, moving);
+            } catch (SQLException | RuntimeException re) {
+                log.error("Tenant move left MOVING, periodic recovery will retry: tenantId={}", tenantId, re);
+                e.addSuppressed(re);
+            }
+            if (e instanceof InterruptedException ie) {
+                throw ie;
+            }
+            if (e instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException("Tenant move failed: " + e.getMessage(), e);
+        }
+
+        finishMove(dataSources, tenantId, targetShard);
+        log.info("Tenant move completed: tenantId={}, {} -> {}, rows={}", tenantId, sourceShard, targetShard, moved);
+        shardRouter.onShard(targetShard, () -> {
+            jobEventService.logEvent(null, tenantId, "TENANT_MOVED",
+                    "Tenant moved from shard " + sourceShard + " to " + targetShard);
+            return null;
+        });
+
+        return Map.of("tenantId", tenantId, "from", sourceShard, "shard", targetShard, "moved", moved);
+    }
+
+    /**
+     * Resolves a MOVING tenant, holding its move lock. The source fence is deleted in
+     * the same transaction as the copied source rows, so a committed target copy
+     * (target fence) without a source fence means the target has the only copy.
+     */
+    private void recover(ShardDataSources dataSources, TenantShardOverride moving) throws SQLException {
+        String tenantId = moving.getTenantId();
+        String sourceShard = moving.getShard();
+        String targetShard = moving.getMoveTarget();
+        DataSource source = dataSources.get(sourceShard);
+
+        if (targetShard != null) {
+            DataSource target = dataSources.get(targetShard);
+            if (hasFence(target, tenantId) && !hasFence(source, tenantId)) {
+                finishMove(dataSources, tenantId, targetShard);
+                log.warn("Tenant move rolled forward: tenantId={}, {} -> {}", tenantId, sourceShard, targetShard);
+                return;
+            }
+            // the copy (if any) was never visible to workers or the API
+            try (Connection connection = target.getConnection()) {
+                connection.setAutoCommit(false);
+                try {
+                    for (String table : DELETE_ORDER) {
+                        deleteTenantRows(connection, table, tenantId);
+                    }
+                    deleteFence(connection, tenantId);
+                    connection.commit();
+                } catch (SQLException | RuntimeException e) {
+                    connection.rollback();
+                    throw e;
+                }
+            }
+        }
+        removeFence(source, tenantId);
+        shardRouter.saveOverride(override(tenantId, sourceShard, TenantShardState.ACTIVE));
+        log.warn("Tenant move rolled back: tenantId={}, stays on {}", tenantId, sourceShard);
+    }
+
+    private void finishMove(ShardDataSources dataSources, String tenantId, String targetShard) throws SQLException {
+        shardRouter.saveOverride(override(tenantId, targetShard, TenantShardState.ACTIVE));
+        // a crash before this leaves a stray fence, which periodic recovery removes
+        removeFence(dataSources.get(targetShard), tenantId);
+    }
+
+    private Map<String, Integer> copyAndDelete(String tenantId, DataSource sourceDs, DataSource targetDs)
+            throws SQLException, InterruptedException {
+        long deadline = System.nanoTime() + RUNNING_DRAIN_TIMEOUT.toNanos();
+        while (true) {
+            try (Connection source = sourceDs.getConnection();
+                 Connection target = targetDs.getConnection()) {
+                source.setAutoCommit(false);
+                target.setAutoCommit(false);
+                try {
+                    if (lockJobsAndCountRunning(source, tenantId) == 0) {
+                        // leftovers of an earlier failed attempt; the target isn't authoritative yet
+                        for (String table : DELETE_ORDER) {
+                            deleteTenantRows(target, table, tenantId);
+                        }
+                        Map<String, List<Long>> copied = new LinkedHashMap<>();
+                        for (String table : COPY_ORDER) {
+                            copied.put(table, copyRows(source, target, table, tenantId));
+                        }
+                        insertFence(target, tenantId);
+                        target.commit();
+
+                        // only what was copied: a row that appeared since stays rather than being lost
+                        for (String table : DELETE_ORDER) {
+                            deleteRowsById(source, table, copied.get(table));
+                        }
+                        deleteFence(source, tenantId);
+                        source.commit();
+
+                        Map<String, Integer> moved = new LinkedHashMap<>();
+                        copied.forEach((table, keys) -> moved.put(table, keys.size()));
+                        return moved;
+                    }
+                    source.rollback();
+                    target.rollback();
+                } catch (SQLException | RuntimeException e) {
+                    source.rollback();
+                    target.rollback();
+                    throw e;
+                }
+            }
+
+            if (System.nanoTime() >= deadline) {
+                throw new IllegalStateException("Tenant " + tenantId + " still has running jobs");
+            }
+            Thread.sleep(DRAIN_POLL_MILLIS);
+        }
+    }
+
+    /**
+     * Counts only live leases: a RUNNING job whose lease expired lost its worker,
+     * it is copied as is and taken over on the target.
+     */
+    private static int lockJobsAndCountRunning(Connection source, String tenantId) throws SQLException {
+        try (PreparedStatement ps = source.prepareStatement(
+                "SELECT status = 'RUNNING' AND leased_until > now() FROM jobs WHERE tenant_id = ? FOR UPDATE")) {
+            ps.setString(1, tenantId);
+            int running = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    if (rs.getBoolean(1)) {
+                        running++;
+                    }
+                }
+            }
+            return running;
+        }
+    }
+
+    /**
+     * Copies the tenant's rows column-for-column, so ids and all other values are preserved.
+     * Returns the keys of the copied rows.
+     */
+    private static List<Long> copyRows(Connection source, Connection target, String table, String tenantId)
+            throws SQLException {
+        try (PreparedStatement select = source.prepareStatement("SELECT * FROM " + table + " WHERE tenant_id = ?")) {
+            select.setString(1, tenantId);
+            try (ResultSet rs = select.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                int columns = meta.getColumnCount();
+                StringJoiner names = new StringJoiner(", ");
+                StringJoiner params = new StringJoiner(", ");
+                for (int i = 1; i <= columns; i++) {
+                    names.add(meta.getColumnName(i));
+                    params.add("?");
+                }
+
+                int keyColumn = rs.findColumn(KEY_COLUMNS.get(table));
+                List<Long> copied = new ArrayList<>();
+                try (PreparedStatement insert = target.prepareStatement(
+                        "INSERT INTO " + table + " (" + names + ") VALUES (" + params + ")")) {
+                    while (rs.next()) {
+                        for (int i = 1; i <= columns; i++) {
+                            Object value = rs.getObject(i);
+                            if (value == null) {
+                                insert.setNull(i, meta.getColumnType(i));
+                            } else {
+                                insert.setObject(i, value);
+                            }
+                        }
+                        insert.addBatch();
+                        copied.add(rs.getLong(keyColumn));
+                        if (copied.size() % COPY_BATCH_SIZE == 0) {
+                            insert.executeBatch();
+                        }
+                    }
+                    insert.executeBatch();
+                }
+                return copied;
+            }
+        }
+    }
+
+    private static void deleteTenantRows(Connection connection, String table, String tenantId) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("DELETE FROM " + table + " WHERE tenant_id = ?")) {
+            ps.setString(1, tenantId);
+            ps.executeUpdate();
+        }
+    }
+
+    private static void deleteRowsById(Connection connection, String table, List<Long> keys) throws SQLException {
+        if (keys.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "DELETE FROM " + table + " WHERE " + KEY_COLUMNS.get(table) + " = ANY(?)")) {
+            ps.setArray(1, connection.createArrayOf("bigint", keys.toArray()));
+            ps.executeUpdate();
+        }
+    }
+
+    private static void insertFence(Connection connection, String tenantId) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO tenant_fences (tenant_id, created_at) VALUES (?, now()) ON CONFLICT DO NOTHING")) {
+            ps.setString(1, tenantId);
+            ps.executeUpdate();
+        }
+    }
+
+    private static void deleteFence(Connection connection, String tenantId) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("DELETE FROM tenant_fences WHERE tenant_id = ?")) {
+            ps.setString(1, tenantId);
+            ps.executeUpdate();
+        }
+    }
+
+    private static void removeFence(DataSource dataSource, String tenantId) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            deleteFence(connection, tenantId);
+        }
+    }
+
+    private static boolean hasFence(DataSource dataSource, String tenantId) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT 1 FROM tenant_fences WHERE tenant_id = ?")) {
+            ps.setString(1, tenantId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static List<String> fencedTenants(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement("SELECT tenant_id FROM tenant_fences");
+             ResultSet rs = ps.executeQuery()) {
+            List<String> tenants = new ArrayList<>();
+            while (rs.next()) {
+                tenants.add(rs.getString(1));
+            }
+            return tenants;
+        }
+    }
+
+    private static DataSource directory(ShardDataSources dataSources) {
+        return dataSources.get(dataSources.directoryShard());
+    }
+
+    private static TenantShardOverride override(String tenantId, String shard, TenantShardState state) {
+        return TenantShardOverride.builder()
+                .tenantId(tenantId)
+                .shard(shard)
+                .state(state)
+                .updatedAt(Instant.now())
+                .build();
+    }
+
+    /**
+     * Transaction-scoped advisory lock on a dedicated directory connection, held for
+     * the whole move. Closing (or the session dying) rolls back and releases it.
+     */
+    private static final class MoveLock implements AutoCloseable {
+
+        private final Connection connection;
+
+        private MoveLock(Connection connection) {
+            this.connection = connection;
+        }
+
+        // null if another session owns the tenant's move
+        static MoveLock tryAcquire(DataSource directory, String tenantId) throws SQLException {
+            Connection connection = directory.getConnection();
+            try {
+                connection.setAutoCommit(false);
+                try (PreparedStatement ps = connection.prepareStatement(
+                        "SELECT pg_try_advisory_xact_lock(?, hashtext(?))")) {
+                    ps.setInt(1, MOVE_LOCK_CLASS);
+                    ps.setString(2, tenantId);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next() && rs.getBoolean(1)) {
+                            return new MoveLock(connection);
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                connection.close();
+                throw e;
+            }
+            connection.rollback();
+            connection.close();
+            return null;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                connection.rollback();
+            } finally {
+                connection.close();
+            }
+        }
+    }
+}
@@ -1,19 +1,38 @@
 package com.distributed.jobqueue.service;
 
+import com.distributed.jobqueue.config.WorkerProperties;
 import com.distributed.jobqueue.model.Job;
+import com.distributed.jobqueue.model.JobResult;
 import com.distributed.jobqueue.model.JobStatus;
 import com.distributed.jobqueue.repository.JobRepository;
+import com.distributed.jobqueue.shard.ShardContext;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 
 @Service
@@ -22,66 +41,212 @@ public class WorkerService {
 
     private static final Logger log = LoggerFactory.getLogger(WorkerService.class);
 
-    // how long a job lease lasts (if worker dies before ack)
+    // minimum lease per job; an expired lease means the worker died and the job is re-leased
     private static final Duration LEASE_DURATION = Duration.ofMinutes(2);
 
-    // for simplicity: max jobs processed per tick
-    private static final int BATCH_SIZE = 5;
+    // extra lease time on top of a job's timeout, so a live attempt always ends before its lease
+    private static final Duration LEASE_GRACE = Duration.ofSeconds(30);
 
     private final JobRepository jobRepository;
     private final JobEventService jobEventService;
+    private final JobResultService jobResultService;
+    private final WorkerProperties workerProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shardRouter;
+    private final PayloadCodec payloadCodec;
+    private final MeterRegistry meterRegistry;
 
     private final ObjectMapper objectMapper;
 
-    // Run every 5 seconds
-    @Scheduled(fixedDelay = 5000)
-    @Transactional
+    /**
+     * Handlers run here so the scheduler thread can enforce deadlines.
+     * Unbounded on purpose: a handler that ignores interruption only leaks its own
+     * thread, it never blocks the scheduler or later jobs.
+     */
+    private final ExecutorService handlerExecutor = Executors.newCachedThreadPool(new HandlerThreadFactory());
+
+    // next shard to start leasing from
+    private final AtomicInteger shardCursor = new AtomicInteger();
+
+    // jobs currently executing on this instance, so a cancel can interrupt them directly
+    private final Map<Long, Future<?>> runningHandlers = new ConcurrentHashMap<>();
+
+    // Run every poll interval (5 seconds by default)
+    @Scheduled(fixedDelayString = "${jobqueue.worker.poll-interval-ms:5000}")
     public void pollAndProcessJobs() {
         leaseAndProcessJobs();
     }
 
-    @Transactional
+    /**
+     * Visits every shard once per poll, starting at a rotating shard so no shard
+     * is always served first. For each shard: lease a batch in one short
+     * transaction, then process it with that shard in ShardContext.
+     * No transaction, row lock or pooled connection is held while a handler runs;
+     * every DB touch of an attempt is its own short transaction.
+     * Cancellation depends on this: the RUNNING transition must be committed (and its
+     * row locks released) before the handler starts, or a cancel could neither flag
+     * the running job nor get past the lease transaction's locks.
+     */
     public void leaseAndProcessJobs() {
+        List<String> shards = shardRouter.shards();
+        int start = Math.floorMod(shardCursor.getAndIncrement(), shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            String shard = shards.get((start + i) % shards.size());
+            shardRouter.onShard(shard, () -> {
+                leaseAndProcessShard();
+                return null;
+            });
+        }
+    }
+
+    private void leaseAndProcessShard() {
         Instant now = Instant.now();
-        List<Job> candidates = jobRepository.findPendingForLease(now);
-        if (candidates.isEmpty()) {
+        List<Long> leased = meterRegistry.timer("jobqueue.worker.lease")
+                .record(() -> transactionTemplate.execute(status -> leaseBatch(now)));
+        // after the commit, so the probe neither runs inside nor lengthens the lease transaction
+        recordLeasePoll(leased == null ? 0 : leased.size(), now);
+        if (leased == null || leased.isEmpty()) {
             return;
         }
 
-        candidates.stream()
-                .limit(BATCH_SIZE)
-                .forEach(job -> {
-                    // mark as RUNNING, set lease
-                    job.setStatus(JobStatus.RUNNING);
-                    job.setLeasedUntil(now.plus(LEASE_DURATION));
-                    job.setUpdatedAt(now);
-                    jobRepository.save(job);
+        for (int i = 0; i < leased.size(); i++) {
+            processOneJob(leased.get(i), leased.subList(i + 1, leased.size()));
+        }
+    }
 
-                    log.info("Job leased: jobId={}, tenantId={}", job.getId(), job.getTenantId());
-                    jobEventService.logEvent(
-                            job.getId(),
-                            job.getTenantId(),
-                            "LEASED",
-                            "Job leased by worker"
-                    );
-                });
+    /**
+     * Runs inside the lease transaction, on the current shard. SKIP LOCKED lets concurrent workers
+     * lease disjoint batches instead of queueing on each other's row locks.
+     *
+     * Every job is leased for its own duration. The batch runs one job after another,
+     * so each job that starts extends the leases of the jobs still queued behind it
+     * (see processOneJob); a job's lease is renewed to its own deadline when it starts.
+     * RUNNING jobs with an expired lease are taken over, and the lost attempt counts
+     * against their retries.
+     */
+    private List<Long> leaseBatch(Instant now) {
+        List<Job> candidates = jobRepository.findLeasable(
+                now, PageRequest.of(0, workerProperties.getBatchSize()));
 
-        // After leasing, process outside of TX (to avoid long-running transactions)
-        for (Job job : candidates.stream().limit(BATCH_SIZE).toList()) {
-            processOneJob(job.getId());
+        List<Job> leased = new ArrayList<>();
+        for (Job job : candidates) {
+            if (job.getStatus() == JobStatus.RUNNING && !takeOverExpired(job, now)) {
+                continue;
+            }
+            leased.add(job);
         }
+
+        for (Job job : leased) {
+            job.setStatus(JobStatus.RUNNING);
+            job.setLeasedUntil(now.plus(leaseDurationFor(job)));
+            job.setUpdatedAt(now);
+            jobRepository.save(job);
+
+            log.info("Job leased: jobId={}, tenantId={}", job.getId(), job.getTenantId());
+            jobEventService.logEvent(
+                    job.getId(),
+                    job.getTenantId(),
+                    "LEASED",
+                    "Job leased by worker"
+            );
+        }
+        return leased.stream().map(Job::getId).toList();
+    }
+
+    /**
+     * Counts lease polls by outcome (jobqueue.worker.lease.polls):
+     * - empty: nothing leased (the common idle poll, recorded without a query)
+     * - full: got a whole batch
+     * - contended: short batch although jobs are still leasable, i.e. SKIP LOCKED
+     *   passed over rows other workers were leasing at the same time
+     * - drained: short batch because the shard had nothing more to lease
+     * Only short, non-empty batches pay for the one-row probe.
+     */
+    private void recordLeasePoll(int leased, Instant now) {
+        String result;
+        if (leased == 0) {
+            result = "empty";
+        } else if (leased >= workerProperties.getBatchSize()) {
+            result = "full";
+        } else if (!jobRepository.findLeasableIds(now, PageRequest.of(0, 1)).isEmpty()) {
+            result = "contended";
+        } else {
+            result = "drained";
+        }
+        meterRegistry.counter("jobqueue.worker.lease.polls", "result", result).increment();
     }
 
-    @Transactional
+    /**
+     * Records the lost attempt of a job whose worker let the lease expire.
+     * Returns false if that used up its retries (the job goes to the DLQ instead).
+     */
+    private boolean takeOverExpired(Job job, Instant now) {
+        int lostAttempt = job.getAttemptCount() + 1;
+        log.warn("Job lease expired, taking over: jobId={}, tenantId={}, attempt={}/{}",
+                job.getId(), job.getTenantId(), lostAttempt, job.getMaxRetries());
+        jobEventService.logEvent(
+                job.getId(),
+                job.getTenantId(),
+                "LEASE_EXPIRED",
+                "Lease expired, previous attempt presumed lost"
+        );
+
+        job.setAttemptCount(lostAttempt);
+        if (lostAttempt <= job.getMaxRetries()) {
+            return true;
+        }
+        job.setStatus(JobStatus.DLQ);
+        job.setLeasedUntil(null);
+        job.setUpdatedAt(now);
+        job.setLastError("Lease expired");
+        jobRepository.save(job);
+        jobEventService.logEvent(
+                job.getId(),
+                job.getTenantId(),
+                "DLQ",
+                "Job moved to DLQ after retry exhaustion"
+        );
+        return false;
+    }
+
+    /**
+     * Processes one leased job of the shard in ShardContext.
+     * The job loaded here is a detached snapshot; outcomes are written by
+     * completeJob / markCancelled / handleFailure in their own transactions.
+     */
     public void processOneJob(Long jobId) {
+        processOneJob(jobId, List.of());
+    }
+
+    /**
+     * queued: jobs of the same batch that will run after this one on this thread.
+     */
+    private void processOneJob(Long jobId, List<Long> queued) {
         Job job = jobRepository.findById(jobId)
                 .orElse(null);
         if (job == null) {
             return;
         }
 
+        // from here the lease has to cover this attempt's deadline
+        Instant now = Instant.now();
+        Instant deadline = now.plus(leaseDurationFor(job));
+        if (jobRepository.renewLease(jobId, job.getLeasedUntil(), deadline) == 0) {
+            log.warn("Job lease lost before start, skipping: jobId={}, tenantId={}", jobId, job.getTenantId());
+            return;
+        }
+        // the queued jobs can't start before this attempt ends
+        if (!queued.isEmpty()) {
+            jobRepository.extendQueuedLeases(queued, now, deadline);
+        }
+
         try {
-            if (job.getPayload().contains("failMe")) {
+            if (job.isCancelRequested()) {
+                throw new JobCancelledException();
+            }
+            // decoded (and for JSON parsed) once per attempt
+            JobPayload payload = payloadCodec.decode(job);
+            if (payload.text() != null && payload.text().contains("failMe")) {
                 job.setAttemptCount(3);
                 throw new RuntimeException("Payload instructed failure");
             }
@@ -93,40 +258,165 @@ public class WorkerService {
                     "Job started processing"
             );
 
-            applyPayloadSideEffects(job);
-            Thread.sleep(1000L);
-
-            if (Math.random() < 0.2) {
-                throw new RuntimeException("This failed");
-            }
-
-            job.setStatus(JobStatus.COMPLETED);
-            job.setLeasedUntil(null);
-            job.setAttemptCount(job.getAttemptCount() + 1);
-            job.setUpdatedAt(Instant.now());
-            job.setCompletedAt(Instant.now());
-            job.setLastError(null);
-            jobRepository.save(job);
+            ObjectNode result = executeWithDeadline(job, payload, resolveTimeout(job));
 
-            log.info("Job completed: jobId={}, tenantId={}", job.getId(), job.getTenantId());
-            jobEventService.logEvent(
-                    job.getId(),
-                    job.getTenantId(),
-                    "COMPLETED",
-                    "Job completed successfully"
-            );
+            completeJob(job, result);
+        } catch (JobCancelledException e) {
+            markCancelled(job);
         } catch (Exception e) {
             handleFailure(job, e);
         }
     }
 
-    private void applyPayloadSideEffects(Job job) {
+    /**
+     * Stores the result and marks the job COMPLETED atomically.
+     * Serialization and any spill file write happen before the transaction opens,
+     * so it holds the row lock and connection only for the writes.
+     */
+    private void completeJob(Job snapshot, ObjectNode result) {
+        JobResult prepared = jobResultService.prepareResult(snapshot, result);
         try {
-            if (job.getPayload() == null || job.getPayload().isBlank()) {
-                return;
+            transactionTemplate.executeWithoutResult(status -> {
+                Job job = reload(snapshot);
+                jobResultService.saveResult(prepared);
+
+                job.setStatus(JobStatus.COMPLETED);
+                job.setLeasedUntil(null);
+                job.setAttemptCount(snapshot.getAttemptCount() + 1);
+                job.setUpdatedAt(Instant.now());
+                job.setCompletedAt(Instant.now());
+                job.setLastError(null);
+                jobRepository.save(job);
+
+                jobEventService.logEvent(
+                        job.getId(),
+                        job.getTenantId(),
+                        "COMPLETED",
+                        "Job completed successfully"
+                );
+            });
+        } catch (RuntimeException e) {
+            // rolled back (or never got to saveResult): the prepared file is orphaned
+            jobResultService.discardResult(prepared);
+            throw e;
+        }
+        log.info("Job completed: jobId={}, tenantId={}", snapshot.getId(), snapshot.getTenantId());
+    }
+
+    /**
+     * Re-reads the job inside the current transaction, so an outcome never
+     * overwrites columns changed meanwhile by others (e.g. cancelRequested).
+     */
+    private Job reload(Job snapshot) {
+        return jobRepository.findById(snapshot.getId())
+                .orElseThrow(() -> new IllegalStateException("Job disappeared: " + snapshot.getId()));
+    }
+
+    /**
+     * Interrupts the handler if the job is executing on this instance.
+     * Workers on other instances notice the job's cancelRequested flag instead.
+     */
+    public boolean cancelRunning(Long jobId) {
+        Future<?> handler = runningHandlers.get(jobId);
+        return handler != null && handler.cancel(true);
+    }
+
+    /**
+     * The job handler: everything an attempt does besides bookkeeping.
+     * Must stay interruptible so deadlines and cancels can stop it.
+     */
+    private ObjectNode runHandler(Job job, JobPayload payload) throws InterruptedException {
+        ObjectNode result = applyPayloadSideEffects(job, payload);
+        Thread.sleep(1000L);
+
+        if (Math.random() < 0.2) {
+            throw new RuntimeException("This failed");
+        }
+        return result;
+    }
+
+    /**
+     * Runs the handler on the handler pool and waits for it until the deadline,
+     * re-checking for a cancel request every poll interval.
+     * On timeout or cancel the handler thread is interrupted.
+     */
+    private ObjectNode executeWithDeadline(Job job, JobPayload payload, Duration timeout) throws Exception {
+        // the handler thread must write its events to the same shard
+        String shard = ShardContext.current();
+        Future<ObjectNode> handler = handlerExecutor.submit(() -> ShardContext.callIn(shard, () -> {
+            try {
+                return runHandler(job, payload);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Handler interrupted");
             }
+        }));
+        runningHandlers.put(job.getId(), handler);
 
-            JsonNode root = objectMapper.readTree(job.getPayload());
+        long deadline = System.nanoTime() + timeout.toNanos();
+        long pollNanos = workerProperties.getCancelPollInterval().toNanos();
+        try {
+            while (true) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    handler.cancel(true);
+                    throw new JobTimedOutException(timeout);
+                }
+                try {
+                    return handler.get(Math.min(remaining, pollNanos), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    if (jobRepository.isCancelRequested(job.getId())) {
+                        handler.cancel(true);
+                        throw new JobCancelledException();
+                    }
+                } catch (CancellationException e) {
+                    // cancelled locally via cancelRunning
+                    throw new JobCancelledException();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception cause) {
+                        throw cause;
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            runningHandlers.remove(job.getId());
+        }
+    }
+
+    /**
+     * Per-job timeout wins, then the per-type timeout, then the worker default.
+     */
+    /**
+     * Per-job timeout, else per-type, else the default; never above max-timeout
+     * (also covers jobs submitted before the cap existed).
+     */
+    private Duration resolveTimeout(Job job) {
+        Duration timeout = workerProperties.getDefaultTimeout();
+        if (job.getTimeoutSeconds() != null && job.getTimeoutSeconds() > 0) {
+            timeout = Duration.ofSeconds(job.getTimeoutSeconds());
+        } else if (job.getType() != null) {
+            timeout = workerProperties.getTypeTimeouts().getOrDefault(job.getType(), timeout);
+        }
+        Duration max = workerProperties.getMaxTimeout();
+        return timeout.compareTo(max) > 0 ? max : timeout;
+    }
+
+    private Duration leaseDurationFor(Job job) {
+        Duration needed = resolveTimeout(job).plus(LEASE_GRACE);
+        return needed.compareTo(LEASE_DURATION) > 0 ? needed : LEASE_DURATION;
+    }
+
+    /**
+     * Runs the payload's actions and returns the job result describing what was applied.
+     */
+    private ObjectNode applyPayloadSideEffects(Job job, JobPayload payload) {
+        ObjectNode result = objectMapper.createObjectNode();
+        try {
+            JsonNode root = payload.json();
+            if (root == null) {
+                return result;
+            }
 
             // If payload has a "color" field, emit a COLOR_CHANGE event
             if (root.hasNonNull("color")) {
@@ -139,22 +429,61 @@ public class WorkerService {
                         "COLOR_CHANGE",
                         color
                 );
+                result.put("color", color);
             }
 
             // You can extend this later for more actions, e.g. "action": "something"
 
         } catch (Exception e) {
-            log.warn("Failed to parse payload for job {} for side effects: {}", job.getId(), e.getMessage());
+            log.warn("Failed to apply payload for job {} for side effects: {}", job.getId(), e.getMessage());
         }
+        return result;
     }
 
-    @Transactional
-    protected void handleFailure(Job job, Exception e) {
-        int nextAttempt = job.getAttemptCount() + 1;
+    protected void markCancelled(Job snapshot) {
+        transactionTemplate.executeWithoutResult(status -> applyCancelled(reload(snapshot)));
+        log.info("Job cancelled: jobId={}, tenantId={}", snapshot.getId(), snapshot.getTenantId());
+    }
+
+    private void applyCancelled(Job job) {
+        job.setStatus(JobStatus.CANCELLED);
+        job.setLeasedUntil(null);
+        job.setUpdatedAt(Instant.now());
+        job.setLastError("Cancelled");
+        jobRepository.save(job);
+
+        jobEventService.logEvent(
+                job.getId(),
+                job.getTenantId(),
+                "CANCELLED",
+                "Job cancelled while running"
+        );
+    }
+
+    /**
+     * Records a failed attempt. attemptCount is taken from the snapshot: only the
+     * lease holder ever changes it, and the handler may have adjusted it.
+     */
+    protected void handleFailure(Job snapshot, Exception e) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Job job = reload(snapshot);
+            if (job.isCancelRequested()) {
+                // cancelled while failing: don't put it back in the queue
+                applyCancelled(job);
+                return;
+            }
+            applyFailure(job, snapshot.getAttemptCount() + 1, e);
+        });
+    }
+
+    private void applyFailure(Job job, int nextAttempt, Exception e) {
         job.setAttemptCount(nextAttempt);
         job.setUpdatedAt(Instant.now());
         job.setLastError(e.getMessage());
 
+        // a timeout is a failed attempt like any other, but gets its own event type
+        String failureEvent = e instanceof JobTimedOutException ? "TIMED_OUT" : "FAILED";
+
         if (nextAttempt > job.getMaxRetries()) {
             job.setStatus(JobStatus.DLQ);
             job.setLeasedUntil(null);
@@ -174,7 +503,7 @@ public class WorkerService {
             jobEventService.logEvent(
                     job.getId(),
                     job.getTenantId(),
-                    "FAILED",
+                    failureEvent,
                     "Job failed: " + e.getMessage()
             );
 
@@ -182,4 +511,32 @@ public class WorkerService {
 
         jobRepository.save(job);
     }
+
+    @PreDestroy
+    void shutdownHandlers() {
+        handlerExecutor.shutdownNow();
+    }
+
+    private static class JobTimedOutException extends RuntimeException {
+        JobTimedOutException(Duration timeout) {
+            super("Job timed out after " + timeout.toSeconds() + "s");
+        }
+    }
+
+    private static class JobCancelledException extends RuntimeException {
+        JobCancelledException() {
+            super("Job cancelled");
+        }
+    }
+
+    private static class HandlerThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "job-handler-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
 }
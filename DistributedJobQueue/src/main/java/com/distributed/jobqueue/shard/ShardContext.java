@@ -0,0 +1,43 @@
+package com.distributed.jobqueue.shard;
+
+import java.util.function.Supplier;
+
+/**
+ * Shard the current thread's repository calls are routed to.
+ *
+ * Must be set before a transaction starts: the routing datasource picks
+ * the shard when the transaction acquires its connection.
+ * Unset means the directory shard.
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static String current() {
+        return CURRENT.get();
+    }
+
+    public static <T> T callIn(String shard, Supplier<T> work) {
+        String previous = CURRENT.get();
+        CURRENT.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public static void runIn(String shard, Runnable work) {
+        callIn(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+}
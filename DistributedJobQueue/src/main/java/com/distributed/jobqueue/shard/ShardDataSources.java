@@ -0,0 +1,47 @@
+package com.distributed.jobqueue.shard;
+
+import com.distributed.jobqueue.config.ShardProperties;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One connection pool per shard, in configuration order (first = directory shard).
+ * Only present when sharding is enabled.
+ */
+public class ShardDataSources {
+
+    private final Map<String, DataSource> dataSources;
+    private final Map<String, ShardProperties.Shard> definitions;
+
+    public ShardDataSources(Map<String, DataSource> dataSources, Map<String, ShardProperties.Shard> definitions) {
+        this.dataSources = dataSources;
+        this.definitions = definitions;
+    }
+
+    public List<String> names() {
+        return new ArrayList<>(dataSources.keySet());
+    }
+
+    public String directoryShard() {
+        return dataSources.keySet().iterator().next();
+    }
+
+    public DataSource get(String shard) {
+        DataSource ds = dataSources.get(shard);
+        if (ds == null) {
+            throw new IllegalArgumentException("Unknown shard: " + shard);
+        }
+        return ds;
+    }
+
+    public ShardProperties.Shard definition(String shard) {
+        return definitions.get(shard);
+    }
+
+    public Map<String, DataSource> asMap() {
+        return dataSources;
+    }
+}
@@ -0,0 +1,121 @@
+package com.distributed.jobqueue.shard;
+
+import com.distributed.jobqueue.config.ShardProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Provisions shard schemas after Hibernate has created/updated the directory shard.
+ *
+ * Schema shards (same database as the directory shard) get the queue tables cloned
+ * with CREATE TABLE ... (LIKE ... INCLUDING ALL), which copies columns, defaults,
+ * identity columns and indexes.
+ * New tables on shard #i restart their ids at i * 2^40, so job ids stay globally
+ * unique and a tenant move can keep them.
+ * Tables that already exist get any columns the directory shard gained since
+ * (ddl-auto only updates the directory shard).
+ *
+ * Shards in separate databases are not provisioned here; create them with the same
+ * DDL (and id ranges) before enabling them.
+ */
+@Component
+@ConditionalOnProperty(prefix = "jobqueue.sharding", name = "enabled", havingValue = "true")
+public class ShardSchemaInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardSchemaInitializer.class);
+
+    // tables holding tenant data (all keyed by tenant_id), plus the per-shard tenant move fences
+    static final List<String> SHARDED_TABLES = List.of("jobs", "job_events", "job_results", "tenant_fences");
+    private static final List<String> IDENTITY_TABLES = List.of("jobs", "job_events");
+
+    private static final int ID_RANGE_BITS = 40;
+
+    private final ShardDataSources shardDataSources;
+
+    /**
+     * Taking the EntityManagerFactory guarantees ddl-auto ran on the directory shard first.
+     */
+    public ShardSchemaInitializer(ShardDataSources shardDataSources, EntityManagerFactory entityManagerFactory) {
+        this.shardDataSources = shardDataSources;
+    }
+
+    @PostConstruct
+    void provisionShards() {
+        List<String> shards = shardDataSources.names();
+        ShardProperties.Shard directory = shardDataSources.definition(shardDataSources.directoryShard());
+
+        for (int i = 1; i < shards.size(); i++) {
+            ShardProperties.Shard shard = shardDataSources.definition(shards.get(i));
+            if (shard.getUrl() != null && !shard.getUrl().equals(directory.getUrl())) {
+                log.info("Shard {} is a separate database, expecting pre-provisioned tables", shard.getName());
+                continue;
+            }
+
+            JdbcTemplate jdbc = new JdbcTemplate(shardDataSources.get(shard.getName()));
+            jdbc.execute("CREATE SCHEMA IF NOT EXISTS " + shard.getSchema());
+
+            for (String table : SHARDED_TABLES) {
+                Integer existing = jdbc.queryForObject(
+                        "SELECT count(*) FROM information_schema.tables WHERE table_schema = ? AND table_name = ?",
+                        Integer.class, shard.getSchema(), table);
+                if (existing != null && existing > 0) {
+                    addMissingColumns(jdbc, directory.getSchema(), shard.getSchema(), table);
+                    continue;
+                }
+
+                jdbc.execute("CREATE TABLE " + shard.getSchema() + "." + table
+                        + " (LIKE " + directory.getSchema() + "." + table + " INCLUDING ALL)");
+                if (IDENTITY_TABLES.contains(table)) {
+                    long firstId = ((long) i << ID_RANGE_BITS) + 1;
+                    jdbc.execute("ALTER TABLE " + shard.getSchema() + "." + table
+                            + " ALTER COLUMN id RESTART WITH " + firstId);
+                }
+                log.info("Provisioned {}.{} for shard {}", shard.getSchema(), table, shard.getName());
+            }
+        }
+    }
+
+    private void addMissingColumns(JdbcTemplate jdbc, String directorySchema, String shardSchema, String table) {
+        Set<String> present = new HashSet<>();
+        for (Map<String, Object> column : columns(jdbc, shardSchema, table)) {
+            present.add((String) column.get("name"));
+        }
+
+        for (Map<String, Object> column : columns(jdbc, directorySchema, table)) {
+            String name = (String) column.get("name");
+            if (present.contains(name)) {
+                continue;
+            }
+            String ddl = "ALTER TABLE " + shardSchema + "." + table + " ADD COLUMN " + name + " " + column.get("type");
+            if (column.get("default_expr") != null) {
+                ddl += " DEFAULT " + column.get("default_expr");
+            }
+            jdbc.execute(ddl);
+            log.info("Added column {}.{}.{}", shardSchema, table, name);
+        }
+    }
+
+    private List<Map<String, Object>> columns(JdbcTemplate jdbc, String schema, String table) {
+        return jdbc.queryForList("""
+                SELECT a.attname AS name,
+                       format_type(a.atttypid, a.atttypmod) AS type,
+                       pg_get_expr(d.adbin, d.adrelid) AS default_expr
+                FROM pg_attribute a
+                JOIN pg_class c ON c.oid = a.attrelid
+                JOIN pg_namespace n ON n.oid = c.relnamespace
+                LEFT JOIN pg_attrdef d ON d.adrelid = a.attrelid AND d.adnum = a.attnum
+                WHERE n.nspname = ? AND c.relname = ? AND a.attnum > 0 AND NOT a.attisdropped
+                ORDER BY a.attnum
+                """, schema, table);
+    }
+}
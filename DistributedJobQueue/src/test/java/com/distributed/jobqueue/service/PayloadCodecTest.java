@@ -0,0 +1,138 @@
+package com.distributed.jobqueue.service;
+
+import com.distributed.jobqueue.model.ContentEncoding;
+import com.distributed.jobqueue.model.Job;
+import com.distributed.jobqueue.model.PayloadContentType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PayloadCodecTest {
+
+    private PayloadCodec codec;
+
+    @BeforeEach
+    void setUp() {
+        codec = new PayloadCodec(new ObjectMapper());
+        ReflectionTestUtils.setField(codec, "maxBytes", 1024);
+        ReflectionTestUtils.setField(codec, "compressThresholdBytes", 64);
+    }
+
+    @Test
+    void untypedTextThatStartsWithJsonStaysText() {
+        for (String payload : new String[]{"123 apples", "true story", "{\"a\":1} trailing"}) {
+            PayloadCodec.EncodedPayload encoded = codec.encode(payload, null);
+
+            assertThat(encoded.contentType()).isEqualTo(PayloadContentType.TEXT);
+            assertThat(encoded.text()).isEqualTo(payload);
+        }
+    }
+
+    @Test
+    void explicitJsonWithTrailingContentIsRejected() {
+        assertThatThrownBy(() -> codec.encode("{\"a\":1} trailing", "json"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Payload is not valid JSON");
+    }
+
+    @Test
+    void explicitJsonWithDuplicateKeysIsRejected() {
+        assertThatThrownBy(() -> codec.encode("{\"a\":1,\"a\":2}", "json"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void jsonIsCompactedWithoutChangingNumbers() {
+        PayloadCodec.EncodedPayload encoded = codec.encode("[1.10, 0.1000000000000000000001, 100.0]", null);
+
+        assertThat(encoded.contentType()).isEqualTo(PayloadContentType.JSON);
+        assertThat(encoded.text()).isEqualTo("[1.10,0.1000000000000000000001,100.0]");
+    }
+
+    @Test
+    void jsonWhitespaceIsRemoved() {
+        PayloadCodec.EncodedPayload encoded = codec.encode("{\"a\": 1}", "json");
+
+        assertThat(encoded.text()).isEqualTo("{\"a\":1}");
+        assertThat(encoded.size()).isEqualTo(7);
+    }
+
+    @Test
+    void blankUntypedPayloadIsKeptAsText() {
+        for (String payload : new String[]{"", "   "}) {
+            PayloadCodec.EncodedPayload encoded = codec.encode(payload, null);
+
+            assertThat(encoded.contentType()).isEqualTo(PayloadContentType.TEXT);
+            assertThat(encoded.text()).isEqualTo(payload);
+        }
+    }
+
+    @Test
+    void blankExplicitJsonIsRejected() {
+        assertThatThrownBy(() -> codec.encode("", "json"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Payload is not valid JSON");
+    }
+
+    @Test
+    void oversizedPayloadIsRejectedBeforeParsing() {
+        assertThatThrownBy(() -> codec.encode("{" + "x".repeat(1024), "json"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Payload too large");
+    }
+
+    @Test
+    void unknownContentTypeIsRejected() {
+        assertThatThrownBy(() -> codec.encode("abc", "xml"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Unsupported payload content type: xml");
+    }
+
+    @Test
+    void binaryPayloadRoundTrips() {
+        String base64 = Base64.getEncoder().encodeToString(new byte[]{0, 1, 2, (byte) 0xff});
+
+        PayloadCodec.EncodedPayload encoded = codec.encode(base64, "binary");
+        Job job = toJob(encoded);
+
+        assertThat(encoded.data()).containsExactly(0, 1, 2, 0xff);
+        assertThat(encoded.size()).isEqualTo(4);
+        assertThat(codec.toApiString(job)).isEqualTo(base64);
+        JobPayload decoded = codec.decode(job);
+        assertThat(decoded.contentType()).isEqualTo(PayloadContentType.BINARY);
+        assertThat(decoded.text()).isNull();
+    }
+
+    @Test
+    void largePayloadIsCompressedAndRoundTrips() {
+        String json = "{\"items\":[" + "1.50,".repeat(50) + "2.00]}";
+
+        PayloadCodec.EncodedPayload encoded = codec.encode(json, null);
+        Job job = toJob(encoded);
+
+        assertThat(encoded.encoding()).isEqualTo(ContentEncoding.GZIP);
+        assertThat(encoded.text()).isNull();
+        assertThat(encoded.size()).isEqualTo(json.length());
+        assertThat(codec.toApiString(job)).isEqualTo(json);
+        JobPayload decoded = codec.decode(job);
+        assertThat(decoded.text()).isEqualTo(json);
+        assertThat(decoded.json().get("items").get(50).toString()).isEqualTo("2.00");
+    }
+
+    private static Job toJob(PayloadCodec.EncodedPayload encoded) {
+        return Job.builder()
+                .id(1L)
+                .payload(encoded.text())
+                .payloadData(encoded.data())
+                .payloadContentType(encoded.contentType())
+                .payloadEncoding(encoded.encoding())
+                .payloadSize(encoded.size())
+                .build();
+    }
+}